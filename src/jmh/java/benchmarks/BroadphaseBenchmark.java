@@ -0,0 +1,119 @@
+package benchmarks;
+
+import game.Config;
+import game.colliders.CircleCollider;
+import game.colliders.Collider;
+import game.colliders.ColliderWorld;
+import game.maps.CityMap;
+import game.utils.Bounds;
+import game.utils.Broadphase;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The broadphases on the city map with a crowd of mobs walking towards its
+ * center, like zombies chasing the player.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class BroadphaseBenchmark {
+    private static final float DELTA_TIME = 1 / 60f;
+    
+    @Param({"HASH_GRID", "QUADTREE", "AABB_TREE", "SWEEP_AND_PRUNE"})
+    private Broadphase.Type type;
+    
+    @Param({"500", "5000"})
+    private int mobCount;
+    
+    private CityMap map;
+    private ColliderWorld colliderWorld;
+    private CircleCollider[] mobs;
+    private float[] spawnPositions;
+    private Broadphase<Collider> broadphase;
+    private int visitCount;
+    private final Broadphase.ItemVisitor<Collider> countVisitor = collider -> visitCount++;
+    private final Broadphase.PairVisitor<Collider> countPairVisitor = (colliderA, colliderB) -> visitCount++;
+    
+    @Setup(Level.Trial)
+    public void setupTrial() {
+        map = CityScene.loadMap();
+        Bounds mapBounds = CityScene.getBounds(map);
+        colliderWorld = new ColliderWorld(() -> Broadphase.create(type, mapBounds, map.getTileSize()));
+        colliderWorld.setBounds(mapBounds);
+        map.addCollidersToWorld(colliderWorld);
+        
+        mobs = CityScene.createMobs(map, mobCount, 28);
+        spawnPositions = new float[mobCount * 2];
+        for (int i = 0; i < mobCount; i++) {
+            spawnPositions[i * 2] = mobs[i].getPosition().getX();
+            spawnPositions[i * 2 + 1] = mobs[i].getPosition().getY();
+            colliderWorld.addCollider(mobs[i]);
+        }
+        broadphase = Broadphase.create(type, mapBounds, map.getTileSize());
+    }
+    
+    /**
+     * Scatter the crowd again, else every iteration after the first would
+     * measure mobs already packed at the center.
+     */
+    @Setup(Level.Iteration)
+    public void setupIteration() {
+        for (int i = 0; i < mobCount; i++) {
+            mobs[i].setPosition(spawnPositions[i * 2], spawnPositions[i * 2 + 1]);
+        }
+    }
+    
+    /**
+     * A full physics tick, as `World` runs it minus the entities.
+     */
+    @Benchmark
+    public void tick() {
+        float centerX = map.getTotalWidth() / 2f;
+        float centerY = map.getTotalHeight() / 2f;
+        for (CircleCollider mob : mobs) {
+            double angle = Math.atan2(centerY - mob.getPosition().getY(), centerX - mob.getPosition().getX());
+            mob.applyForce(
+                (float) (Math.cos(angle) * Config.DEFAULT_ZOMBIE_SPEED * mob.getMass()),
+                (float) (Math.sin(angle) * Config.DEFAULT_ZOMBIE_SPEED * mob.getMass())
+            );
+        }
+        colliderWorld.fixedUpdate(DELTA_TIME);
+    }
+    
+    /**
+     * Rebuild the index over the mobs and find their candidate pairs.
+     */
+    @Benchmark
+    public int rebuildAndFindPairs() {
+        rebuild();
+        visitCount = 0;
+        broadphase.forEachPair(countPairVisitor);
+        return visitCount;
+    }
+    
+    /**
+     * Rebuild the index over the mobs and query the neighbours of each.
+     */
+    @Benchmark
+    public int rebuildAndQuery() {
+        rebuild();
+        visitCount = 0;
+        for (CircleCollider mob : mobs) {
+            broadphase.query(mob, countVisitor);
+        }
+        return visitCount;
+    }
+    
+    private void rebuild() {
+        broadphase.clear();
+        for (CircleCollider mob : mobs) {
+            broadphase.insert(mob);
+        }
+        broadphase.build();
+    }
+}
@@ -0,0 +1,129 @@
+package benchmarks;
+
+import game.Game;
+import game.colliders.CircleCollider;
+import game.colliders.ColliderWorld;
+import game.map.Map;
+import game.map.OccupancyGrid;
+import game.maps.CityMap;
+import game.utils.Bounds;
+import game.utils.Broadphase;
+import game.utils.PathFinder;
+import game.utils.Vector;
+import javafx.application.Platform;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * The city map and its mobs, built the way `World` builds them.
+ */
+final class CityScene {
+    static final float MOB_RADIUS = 5;
+    
+    private CityScene() {
+    }
+    
+    /**
+     * Load the city map. Its materials load images, so the toolkit is
+     * started first, without a display.
+     */
+    static CityMap loadMap() {
+        setPropertyIfAbsent("glass.platform", "Monocle");
+        setPropertyIfAbsent("monocle.platform", "Headless");
+        setPropertyIfAbsent("prism.order", "sw");
+        try {
+            Platform.startup(() -> {});
+        } catch (IllegalStateException ignored) {
+            // Already started by an earlier trial in this fork
+        }
+        return new CityMap();
+    }
+    
+    private static void setPropertyIfAbsent(String key, String value) {
+        if (System.getProperty(key) == null) {
+            System.setProperty(key, value);
+        }
+    }
+    
+    static Bounds getBounds(Map map) {
+        return new Bounds(0, 0, map.getTotalWidth(), map.getTotalHeight());
+    }
+    
+    /**
+     * Create mobs with the collider settings of a zombie, at random spots
+     * that are clear of the map's static colliders.
+     */
+    static CircleCollider[] createMobs(Map map, int count, long seed) {
+        OccupancyGrid occupancyGrid = map.getOccupancyGrid();
+        Random random = new Random(seed);
+        CircleCollider[] mobs = new CircleCollider[count];
+        for (int i = 0; i < count; i++) {
+            float x;
+            float y;
+            do {
+                x = MOB_RADIUS + random.nextFloat() * (map.getTotalWidth() - 2 * MOB_RADIUS);
+                y = MOB_RADIUS + random.nextFloat() * (map.getTotalHeight() - 2 * MOB_RADIUS);
+            } while (occupancyGrid.isCircleBlocked(x, y, MOB_RADIUS));
+            
+            CircleCollider mob = new CircleCollider(x, y, MOB_RADIUS);
+            mob.setCategory(Game.CollisionCategory.MOBS.get());
+            mob.setMask(
+                Game.CollisionCategory.MAP.get() |
+                    Game.CollisionCategory.MOBS.get() |
+                    Game.CollisionCategory.PROJECTILES.get()
+            );
+            mob.setMass(1);
+            mobs[i] = mob;
+        }
+        return mobs;
+    }
+    
+    /**
+     * Create the path finder of the map, over its colliders and occupancy
+     * grid like the one of `World`.
+     */
+    static PathFinder createPathFinder(Map map) {
+        Bounds mapBounds = getBounds(map);
+        ColliderWorld colliderWorld = new ColliderWorld(
+            () -> Broadphase.create(Broadphase.Type.HASH_GRID, mapBounds, map.getTileSize())
+        );
+        map.addCollidersToWorld(colliderWorld);
+        
+        PathFinder pathFinder = new PathFinder(map.getTileSize() / 2, map.getTotalWidth(), map.getTotalHeight());
+        pathFinder.setOccupancyGrid(map.getOccupancyGrid());
+        pathFinder.getObstacles().addAll(map.getColliders());
+        pathFinder.buildObstacleGrid();
+        return pathFinder;
+    }
+    
+    /**
+     * Pick pairs of free nodes that are at least `minDistance` nodes apart
+     * on both axes and have a path between them, so each path crosses the
+     * map through its streets.
+     *
+     * @returns {Vector[]} The start and goal of each pair, one after the other.
+     */
+    static Vector[] findLongPaths(Map map, PathFinder pathFinder, int count, int minDistance, long seed) {
+        int nodeSize = pathFinder.getNodeSize();
+        int gridLengthX = map.getTotalWidth() / nodeSize;
+        int gridLengthY = map.getTotalHeight() / nodeSize;
+        Random random = new Random(seed);
+        ArrayList<Vector> points = new ArrayList<>();
+        while (points.size() < count * 2) {
+            int startX = random.nextInt(gridLengthX);
+            int startY = random.nextInt(gridLengthY);
+            int goalX = random.nextInt(gridLengthX);
+            int goalY = random.nextInt(gridLengthY);
+            if (Math.abs(goalX - startX) < minDistance || Math.abs(goalY - startY) < minDistance) continue;
+            if (pathFinder.isObstacle(startX, startY) || pathFinder.isObstacle(goalX, goalY)) continue;
+            
+            Vector start = new Vector((startX + 0.5f) * nodeSize, (startY + 0.5f) * nodeSize);
+            Vector goal = new Vector((goalX + 0.5f) * nodeSize, (goalY + 0.5f) * nodeSize);
+            if (pathFinder.requestPath(start, goal).isEmpty()) continue;
+            points.add(start);
+            points.add(goal);
+        }
+        return points.toArray(new Vector[0]);
+    }
+}
@@ -0,0 +1,45 @@
+package benchmarks;
+
+import game.maps.CityMap;
+import game.utils.PathFinder;
+import game.utils.Vector;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jump Point Search against A* on long paths through the open streets of
+ * the city map.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class JumpPointBenchmark {
+    private static final int PATH_COUNT = 16;
+    
+    @Param({"A_STAR", "JUMP_POINT"})
+    private PathFinder.Mode mode;
+    
+    private PathFinder pathFinder;
+    private Vector[] points;
+    
+    @Setup(Level.Trial)
+    public void setup() {
+        CityMap map = CityScene.loadMap();
+        pathFinder = CityScene.createPathFinder(map);
+        points = CityScene.findLongPaths(map, pathFinder, PATH_COUNT, map.getTotalWidth() / pathFinder.getNodeSize() / 2, 25);
+        pathFinder.setMode(mode);
+    }
+    
+    @Benchmark
+    public int requestPath() {
+        int nodeCount = 0;
+        for (int i = 0; i < PATH_COUNT; i++) {
+            nodeCount += pathFinder.requestPath(points[i * 2], points[i * 2 + 1]).size();
+        }
+        return nodeCount;
+    }
+}
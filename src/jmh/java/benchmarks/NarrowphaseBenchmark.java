@@ -0,0 +1,106 @@
+package benchmarks;
+
+import game.colliders.CircleCollider;
+import game.colliders.CollisionResolvers;
+import game.colliders.PolygonCollider;
+import game.utils.Vector;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Narrowphase tests on overlapping shapes. Run with `-prof gc` to compare
+ * the bytes allocated per call by the float variants and by the wrappers
+ * that return a new `Vector`.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class NarrowphaseBenchmark {
+    private CircleCollider circleA;
+    private CircleCollider circleB;
+    private PolygonCollider polygonA;
+    private PolygonCollider polygonB;
+    
+    private final Vector linePointA = new Vector(-40, 5);
+    private final Vector linePointB = new Vector(40, 5);
+    private final Vector circlePosition = new Vector(0, 0);
+    private final Vector result = new Vector();
+    
+    @Setup
+    public void setup() {
+        circleA = new CircleCollider(0, 0, 10);
+        circleB = new CircleCollider(15, 0, 10);
+        polygonA = createSquare();
+        polygonB = createSquare();
+    }
+    
+    private static PolygonCollider createSquare() {
+        return new PolygonCollider(new Vector[] {
+            new Vector(0, 0),
+            new Vector(20, 0),
+            new Vector(20, 20),
+            new Vector(0, 20)
+        });
+    }
+    
+    // Resolving pushes the shapes apart, so they are put back every call
+    
+    @Benchmark
+    public Vector circleToCircle() {
+        circleA.getPosition().set(0, 0);
+        circleB.getPosition().set(15, 0);
+        CollisionResolvers.circleToCircle(circleA, circleB);
+        return circleA.getPosition();
+    }
+    
+    @Benchmark
+    public Vector circleToPolygon() {
+        circleA.getPosition().set(0, 10);
+        polygonA.getPosition().set(5, 0);
+        CollisionResolvers.circleToPolygon(circleA, polygonA);
+        return circleA.getPosition();
+    }
+    
+    @Benchmark
+    public Vector polygonToPolygon() {
+        polygonA.getPosition().set(0, 0);
+        polygonB.getPosition().set(15, 5);
+        CollisionResolvers.polygonToPolygon(polygonA, polygonB);
+        return polygonA.getPosition();
+    }
+    
+    @Benchmark
+    public void lineToCircle(Blackhole blackhole) {
+        blackhole.consume(CollisionResolvers.getLineToCircleIntersectionPoint(
+            linePointA.getX(), linePointA.getY(), linePointB.getX(), linePointB.getY(),
+            circlePosition.getX(), circlePosition.getY(), 10, result
+        ));
+        blackhole.consume(result);
+    }
+    
+    @Benchmark
+    public Vector lineToCircleReturningVector() {
+        return CollisionResolvers.getLineToCircleIntersectionPoint(linePointA, linePointB, circlePosition, 10);
+    }
+    
+    @Benchmark
+    public void lineToCollider(Blackhole blackhole) {
+        polygonA.getPosition().set(-10, -10);
+        blackhole.consume(CollisionResolvers.getLineToColliderIntersectionPoint(
+            linePointA.getX(), linePointA.getY(), linePointB.getX(), linePointB.getY(),
+            polygonA, result
+        ));
+        blackhole.consume(result);
+    }
+    
+    @Benchmark
+    public Vector lineToColliderReturningVector() {
+        polygonA.getPosition().set(-10, -10);
+        return CollisionResolvers.getLineToColliderIntersectionPoint(linePointA, linePointB, polygonA);
+    }
+}
@@ -0,0 +1,222 @@
+package benchmarks;
+
+import game.maps.CityMap;
+import game.utils.PathFinder;
+import game.utils.Vector;
+import org.openjdk.jmh.annotations.*;
+import utils.Heap;
+import utils.IndexedHeap;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A* across the city map with the indexed heap as its open set, against
+ * the list backed `Heap` it replaced. That one finds nodes with a linear
+ * scan and never moves a node whose cost went down.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class OpenSetBenchmark {
+    private static final int PATH_COUNT = 16;
+    
+    private static final int[] NEIGHBOR_OFFSETS_X = {-1, -1, -1, 0, 0, 1, 1, 1};
+    private static final int[] NEIGHBOR_OFFSETS_Y = {-1, 0, 1, -1, 1, -1, 0, 1};
+    private static final int[] NEIGHBOR_COSTS = {14, 10, 14, 10, 10, 14, 10, 14};
+    
+    private PathFinder pathFinder;
+    private Vector[] points;
+    private int[] startIndices;
+    private int[] goalIndices;
+    
+    /* Search state, the same for both open sets */
+    private int gridLengthX;
+    private int gridLengthY;
+    private boolean[] obstacles;
+    private int[] gCosts;
+    private int[] hCosts;
+    private int[] generations;
+    private int[] closedGenerations;
+    private int generation = 0;
+    private IndexedHeap indexedOpenNodes;
+    
+    @Setup(Level.Trial)
+    public void setup() {
+        CityMap map = CityScene.loadMap();
+        pathFinder = CityScene.createPathFinder(map);
+        points = CityScene.findLongPaths(map, pathFinder, PATH_COUNT, map.getTotalWidth() / pathFinder.getNodeSize() / 2, 21);
+        
+        gridLengthX = map.getTotalWidth() / pathFinder.getNodeSize();
+        gridLengthY = map.getTotalHeight() / pathFinder.getNodeSize();
+        int nodeCount = gridLengthX * gridLengthY;
+        obstacles = new boolean[nodeCount];
+        for (int index = 0; index < nodeCount; index++) {
+            obstacles[index] = pathFinder.isObstacle(index % gridLengthX, index / gridLengthX);
+        }
+        gCosts = new int[nodeCount];
+        hCosts = new int[nodeCount];
+        generations = new int[nodeCount];
+        closedGenerations = new int[nodeCount];
+        indexedOpenNodes = new IndexedHeap(nodeCount, this::compareNodes);
+        
+        startIndices = new int[PATH_COUNT];
+        goalIndices = new int[PATH_COUNT];
+        for (int i = 0; i < PATH_COUNT; i++) {
+            startIndices[i] = getNode(points[i * 2]);
+            goalIndices[i] = getNode(points[i * 2 + 1]);
+        }
+    }
+    
+    private int getNode(Vector position) {
+        int[] gridPosition = pathFinder.convertWorldPositionToGridPosition(position);
+        return gridPosition[1] * gridLengthX + gridPosition[0];
+    }
+    
+    private int compareNodes(int a, int b) {
+        int fCostA = gCosts[a] + hCosts[a];
+        int fCostB = gCosts[b] + hCosts[b];
+        if (fCostA == fCostB) return hCosts[a] - hCosts[b];
+        return fCostA - fCostB;
+    }
+    
+    @Benchmark
+    public int indexedHeap() {
+        int closedCount = 0;
+        for (int i = 0; i < PATH_COUNT; i++) {
+            closedCount += searchWithIndexedHeap(startIndices[i], goalIndices[i]);
+        }
+        return closedCount;
+    }
+    
+    @Benchmark
+    public int listHeap() {
+        int closedCount = 0;
+        for (int i = 0; i < PATH_COUNT; i++) {
+            closedCount += searchWithListHeap(startIndices[i], goalIndices[i]);
+        }
+        return closedCount;
+    }
+    
+    /**
+     * The same paths through `PathFinder`, which uses the indexed heap and
+     * also retraces the path.
+     */
+    @Benchmark
+    public int requestPath() {
+        int nodeCount = 0;
+        for (int i = 0; i < PATH_COUNT; i++) {
+            nodeCount += pathFinder.requestPath(points[i * 2], points[i * 2 + 1]).size();
+        }
+        return nodeCount;
+    }
+    
+    /**
+     * @returns {number} How many nodes were closed.
+     */
+    private int searchWithIndexedHeap(int startIndex, int goalIndex) {
+        begin(startIndex, goalIndex);
+        indexedOpenNodes.clear();
+        indexedOpenNodes.add(startIndex);
+        int closedCount = 0;
+        
+        while (!indexedOpenNodes.isEmpty()) {
+            int currentIndex = indexedOpenNodes.remove();
+            closedGenerations[currentIndex] = generation;
+            closedCount++;
+            if (currentIndex == goalIndex) break;
+            
+            for (int i = 0; i < NEIGHBOR_COSTS.length; i++) {
+                int neighborIndex = getOpenableNeighbor(currentIndex, i);
+                if (neighborIndex == -1) continue;
+                
+                int gCost = gCosts[currentIndex] + NEIGHBOR_COSTS[i];
+                boolean isVisited = generations[neighborIndex] == generation;
+                if (isVisited && gCost >= gCosts[neighborIndex]) continue;
+                
+                visit(neighborIndex, gCost, goalIndex);
+                if (indexedOpenNodes.contains(neighborIndex)) {
+                    indexedOpenNodes.decreaseKey(neighborIndex);
+                } else {
+                    indexedOpenNodes.add(neighborIndex);
+                }
+            }
+        }
+        return closedCount;
+    }
+    
+    /**
+     * The loop `PathFinder` used before the indexed heap.
+     *
+     * @returns {number} How many nodes were closed.
+     */
+    private int searchWithListHeap(int startIndex, int goalIndex) {
+        begin(startIndex, goalIndex);
+        Heap<Integer> openNodes = new Heap<>(this::compareNodes);
+        openNodes.add(startIndex);
+        int closedCount = 0;
+        
+        while (!openNodes.isEmpty()) {
+            int currentIndex = openNodes.remove();
+            closedGenerations[currentIndex] = generation;
+            closedCount++;
+            if (currentIndex == goalIndex) break;
+            
+            for (int i = 0; i < NEIGHBOR_COSTS.length; i++) {
+                int neighborIndex = getOpenableNeighbor(currentIndex, i);
+                if (neighborIndex == -1) continue;
+                
+                int gCost = gCosts[currentIndex] + NEIGHBOR_COSTS[i];
+                boolean isNeighborInOpen = openNodes.contains(neighborIndex);
+                if (gCost < gCosts[neighborIndex] || !isNeighborInOpen) {
+                    visit(neighborIndex, gCost, goalIndex);
+                    if (!isNeighborInOpen) {
+                        openNodes.add(neighborIndex);
+                    }
+                }
+            }
+        }
+        return closedCount;
+    }
+    
+    private void begin(int startIndex, int goalIndex) {
+        generation++;
+        visit(startIndex, 0, goalIndex);
+    }
+    
+    private void visit(int index, int gCost, int goalIndex) {
+        generations[index] = generation;
+        gCosts[index] = gCost;
+        hCosts[index] = computeNodeDistances(
+            index % gridLengthX,
+            index / gridLengthX,
+            goalIndex % gridLengthX,
+            goalIndex / gridLengthX
+        );
+    }
+    
+    /**
+     * @returns {number} The grid index of the neighbor, or -1 if it is
+     * outside the grid, an obstacle or closed.
+     */
+    private int getOpenableNeighbor(int index, int neighbor) {
+        int neighborX = index % gridLengthX + NEIGHBOR_OFFSETS_X[neighbor];
+        int neighborY = index / gridLengthX + NEIGHBOR_OFFSETS_Y[neighbor];
+        if (neighborX < 0 || neighborX >= gridLengthX || neighborY < 0 || neighborY >= gridLengthY) {
+            return -1;
+        }
+        int neighborIndex = neighborY * gridLengthX + neighborX;
+        if (obstacles[neighborIndex] || closedGenerations[neighborIndex] == generation) return -1;
+        return neighborIndex;
+    }
+    
+    private static int computeNodeDistances(int aX, int aY, int bX, int bY) {
+        int distanceX = Math.abs(aX - bX);
+        int distanceY = Math.abs(aY - bY);
+        
+        if (distanceX > distanceY) return 14 * distanceY + 10 * (distanceX - distanceY);
+        return 14 * distanceX + 10 * (distanceY - distanceX);
+    }
+}
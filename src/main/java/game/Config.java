@@ -1,5 +1,8 @@
 package game;
 
+import game.utils.Broadphase;
+import game.utils.PathFinder;
+
 import java.util.Objects;
 
 public abstract class Config {
@@ -7,6 +10,8 @@ public abstract class Config {
         System.getenv("MODE"),
         "development"
     );
+    public final static PathFinder.Mode PATH_FINDER_MODE = getPathFinderMode(System.getenv("PATH_FINDER"));
+    public final static Broadphase.Type BROADPHASE = getBroadphaseType(System.getenv("BROADPHASE"));
     
     // Grenade defaults
     public final static int DEFAULT_GRENADE_DETONATION_TIME_MILLIS = 1000;
@@ -97,4 +102,23 @@ public abstract class Config {
     public final static int MAX_ZOMBIE_COUNT = 500;
     public final static int DEFAULT_DEVIL_COUNT = 1;
     public final static int MAX_DEVIL_COUNT = 50;
+    
+    private static PathFinder.Mode getPathFinderMode(String name) {
+        if (name == null) return PathFinder.Mode.A_STAR;
+        return switch (name) {
+            case "flow-field" -> PathFinder.Mode.FLOW_FIELD;
+            case "jump-point" -> PathFinder.Mode.JUMP_POINT;
+            default -> PathFinder.Mode.A_STAR;
+        };
+    }
+    
+    private static Broadphase.Type getBroadphaseType(String name) {
+        if (name == null) return Broadphase.Type.HASH_GRID;
+        return switch (name) {
+            case "quadtree" -> Broadphase.Type.QUADTREE;
+            case "aabb-tree" -> Broadphase.Type.AABB_TREE;
+            case "sweep-and-prune" -> Broadphase.Type.SWEEP_AND_PRUNE;
+            default -> Broadphase.Type.HASH_GRID;
+        };
+    }
 }
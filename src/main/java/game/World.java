@@ -14,7 +14,6 @@ import javafx.beans.property.BooleanProperty;
 import javafx.beans.property.SimpleBooleanProperty;
 import javafx.scene.canvas.GraphicsContext;
 import game.map.Layer;
-import game.map.Material;
 import game.utils.PathFinder;
 import game.maps.CityMap;
 import game.map.Map;
@@ -34,8 +33,9 @@ public class World {
     private final ArrayList<Projectile> projectiles = new ArrayList<>();
     private final Camera camera;
     private final Map map = new CityMap();
-    private final HashGrid<Collider> hashgrid;
     private final ColliderWorld colliderWorld;
+    // Zombies and devils by their hitboxes, rebuilt every tick
+    private final Broadphase<Entity> entityIndex;
     private final PathFinder pathFinder;
     private final ArrayList<SpriteAnimation> oneTimeSpriteAnimations = new ArrayList<>();
     private BooleanProperty isPaused = new SimpleBooleanProperty();
@@ -69,23 +69,23 @@ public class World {
             map.getTotalWidth(),
             map.getTotalHeight()
         );
-        this.hashgrid = new HashGrid<>();
         pathFinder = new PathFinder(
             map.getTileSize() / 2,
             map.getTotalWidth(),
             map.getTotalHeight()
         );
-        this.colliderWorld = new ColliderWorld(hashgrid);
+        pathFinder.setMode(Config.PATH_FINDER_MODE);
+        this.colliderWorld = new ColliderWorld(
+            () -> Broadphase.create(Config.BROADPHASE, mapBounds, map.getTileSize())
+        );
         this.colliderWorld.setBounds(mapBounds);
+        this.colliderWorld.setParallel(true);
+        this.entityIndex = Broadphase.create(Config.BROADPHASE, mapBounds, map.getTileSize() * 2);
         this.camera = new Camera(Game.graphicsContext);
         map.addCollidersToWorld(colliderWorld);
-        map.getLayers().forEach(layer -> {
-            for (Material material : layer.getMaterials()) {
-                Collider collider = material.getCollider();
-                if (collider == null) continue;
-                pathFinder.getObstacles().add(collider);
-            }
-        });
+        pathFinder.setOccupancyGrid(map.getOccupancyGrid());
+        pathFinder.getObstacles().addAll(map.getColliders());
+        pathFinder.buildObstacleGrid();
         
         ambienceAudio.setCycleCount(Integer.MAX_VALUE);
         ambienceAudio.play();
@@ -190,14 +190,18 @@ public class World {
     
     public void fixedUpdate(float deltaTime) {
         if (isPaused()) return;
-        this.hashgrid.clear();
         map.fixedUpdate(deltaTime);
         
+        if (pathFinder.getMode() == PathFinder.Mode.FLOW_FIELD) {
+            pathFinder.updateFlowField(player.getCollider().getPosition());
+        }
+        
         List<Entity> entities = getEntities(true);
         for (int i = entities.size() - 1; i >= 0; i--) {
             Entity entity = entities.get(i);
             entity.fixedUpdate(deltaTime);
         }
+        updateEntityIndex();
         
         for (int i = loots.size() - 1; i >= 0; i--) {
             Loot loot = loots.get(i);
@@ -248,6 +252,24 @@ public class World {
         this.camera.zoomTo(cameraZoom);
     }
     
+    /**
+     * Fit the hitboxes of the entities where they now are, and index the
+     * ones projectiles can hit.
+     */
+    private void updateEntityIndex() {
+        player.updateHitBox();
+        entityIndex.clear();
+        for (Zombie zombie : zombies) {
+            zombie.updateHitBox();
+            entityIndex.insert(zombie);
+        }
+        for (Devil devil : devils) {
+            devil.updateHitBox();
+            entityIndex.insert(devil);
+        }
+        entityIndex.build();
+    }
+    
     public Bullet spawnBullet(Vector initialPosition, float angle) {
         Bullet bullet = new Bullet(this, initialPosition, angle);
         colliderWorld.addCollider(bullet.getCollider());
@@ -255,10 +277,20 @@ public class World {
         return bullet;
     }
     
+    public PelletCluster spawnPelletCluster(
+        Vector initialPosition,
+        float angle,
+        int pelletCount,
+        float spreadInRadians
+    ) {
+        PelletCluster pelletCluster = new PelletCluster(this, initialPosition, angle, pelletCount, spreadInRadians);
+        projectiles.add(pelletCluster);
+        return pelletCluster;
+    }
+    
     public Grenade spawnGrenade(Vector initialPosition, float angle) {
         Grenade grenade = new Grenade(this, initialPosition, angle);
         colliderWorld.addCollider(grenade.getCollider());
-        colliderWorld.addCollider(grenade.getAoeCollider());
         projectiles.add(grenade);
         return grenade;
     }
@@ -410,14 +442,18 @@ public class World {
         return pathFinder;
     }
     
-    public HashGrid<Collider> getHashgrid() {
-        return hashgrid;
-    }
-    
     public ColliderWorld getColliderWorld() {
         return colliderWorld;
     }
     
+    /**
+     * Get the zombies and devils indexed by their hitboxes, rebuilt every
+     * tick once the entities have moved.
+     */
+    public Broadphase<Entity> getEntityIndex() {
+        return entityIndex;
+    }
+    
     public Player getPlayer() {
         return player;
     }
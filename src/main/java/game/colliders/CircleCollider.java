@@ -14,7 +14,7 @@ public class CircleCollider extends Collider {
     }
     
     public CircleCollider() {
-    
+        
     }
     
     private void updateSize() {
@@ -68,9 +68,7 @@ public class CircleCollider extends Collider {
                 (PolygonCollider) otherCollider
             );
         } else if (otherCollider instanceof GroupedCollider groupedCollider) {
-            for (Collider collider : groupedCollider.getColliders()) {
-                resolveCollision(collider);
-            }
+            groupedCollider.resolveCollision(this);
         }
     }
     
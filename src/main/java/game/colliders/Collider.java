@@ -8,11 +8,19 @@ import utils.*;
 import java.util.ArrayList;
 import java.util.HashSet;
 
-public abstract class Collider implements HashGrid.BoundedObject {
+public abstract class Collider implements Broadphase.BoundedObject {
     public static final float VELOCITY_LIMIT = 8.0f;
+    // Movement per tick under which a collider is considered at rest
+    public static final float SLEEP_VELOCITY = 0.001f;
+    // Ticks at rest before a collider falls asleep
+    public static final int SLEEP_TICKS = 60;
     
     /* Misc */
     private ColliderWorld colliderWorld = null;
+    // Slots in the lists of `ColliderWorld`, so it can remove this in constant time
+    int worldSlot = -1;
+    int partitionSlot = -1;
+    boolean isPartitionedAsStatic = false;
     private final int id = Common.generateId();
     
     /* Physics */
@@ -22,46 +30,65 @@ public abstract class Collider implements HashGrid.BoundedObject {
     private final Vector acceleration = new Vector();
     private float friction = 0.1f;
     private float mass = 1.0f;
+    private float velocityLimit = VELOCITY_LIMIT;
     private boolean isStatic = false;
+    private boolean isSleeping = false;
+    private int restingTicks = 0;
     
     /* Collision */
     private boolean isCollidingInBounds = false;
     private final HashSet<Integer> contacts = new HashSet<>();
-    private ArrayList<Collider> nearColliders = new ArrayList<>();
+    
+    /* Contact events */
+    private ContactListener contactListener = null;
+    private int contactListenerMask = 0;
     
     /* Grouping */
     private int category = 0xffff;
     private int mask = 0xffff;
     private int skipResolutionMask = 0;
     
-    public void updateNearColliders(HashGrid<Collider> hashGrid) {
-        Async.queue2.submit(() -> {
-            updateNearCollidersImmediate(hashGrid);
-        });
+    /**
+     * Write the dynamic colliders near this one into `result`, from the
+     * categories in its mask. The query runs on the calling thread, so it
+     * always sees the current state of the world.
+     */
+    public void queryNearColliders(ArrayList<Collider> result) {
+        colliderWorld.queryNearColliders(this, result);
     }
     
-    public void updateNearCollidersImmediate(HashGrid<Collider> hashGrid) {
-        nearColliders = hashGrid.retrieve(
-            this
-        );
+    /**
+     * Receives the contacts of a collider with the colliders whose category
+     * matches the mask it was set with. Called by `ColliderWorld` at the
+     * end of each tick.
+     */
+    public interface ContactListener {
+        void onContactBegin(Collider other);
+        
+        default void onContactPersist(Collider other) {
+            
+        }
+        
+        default void onContactEnd(Collider other) {
+            
+        }
     }
     
-    public ArrayList<Collider> getAndUpdateNearColliders(
-        HashGrid<Collider> hashGrid
-    ) {
-        updateNearColliders(hashGrid);
-        return nearColliders;
+    /* Contact events */
+    public void setContactListener(int mask, ContactListener contactListener) {
+        this.contactListenerMask = mask;
+        this.contactListener = contactListener;
     }
     
-    public ArrayList<Collider> getAndUpdateNearCollidersImmediate(
-        HashGrid<Collider> hashGrid
-    ) {
-        updateNearCollidersImmediate(hashGrid);
-        return nearColliders;
+    public ContactListener getContactListener() {
+        return contactListener;
     }
     
-    public ArrayList<Collider> getNearColliders() {
-        return nearColliders;
+    /**
+     * Check if this collider wants the contact events with the given collider.
+     */
+    public boolean isListeningTo(Collider collider) {
+        return contactListener != null && (collider.category & contactListenerMask) != 0;
     }
     
     /* Grouping */
@@ -133,16 +160,64 @@ public abstract class Collider implements HashGrid.BoundedObject {
      * Check if the given line is colliding with this collider.
      */
     public boolean isCollidingWith(Vector pointA, Vector pointB) {
-        return CollisionResolvers.getLineToColliderIntersectionPoint(pointA, pointB, this) != null;
+        return CollisionResolvers.getLineToColliderIntersectionPoint(
+            pointA.getX(),
+            pointA.getY(),
+            pointB.getX(),
+            pointB.getY(),
+            this,
+            null
+        );
     }
     
     public boolean isColliding() {
         return !contacts.isEmpty();
     }
     
+    /**
+     * Asleep colliders are neither integrated nor searched for pairs
+     * with other asleep colliders. Static colliders are always asleep.
+     */
     public boolean isAsleep() {
-        if (acceleration.getX() != 0 || acceleration.getY() != 0) return false;
-        return isStatic || velocity.getMagnitude() <= 0.001;
+        return isStatic || isSleeping;
+    }
+    
+    /**
+     * Wake this collider, along with the asleep colliders it is touching.
+     */
+    public void wake() {
+        if (!isSleeping) return;
+        if (colliderWorld != null) {
+            colliderWorld.wakeIsland(this);
+        } else {
+            setAwake();
+        }
+    }
+    
+    void setAwake() {
+        isSleeping = false;
+        restingTicks = 0;
+    }
+    
+    /**
+     * Put this collider to sleep if it has been at rest long enough.
+     * Called once the collisions of the tick are resolved, so its contacts
+     * are kept while it sleeps and can be used to wake its island.
+     */
+    void updateSleep() {
+        if (isStatic || isSleeping) return;
+        float movementX = position.getX() - oldPosition.getX();
+        float movementY = position.getY() - oldPosition.getY();
+        if (movementX * movementX + movementY * movementY > SLEEP_VELOCITY * SLEEP_VELOCITY) {
+            restingTicks = 0;
+            return;
+        }
+        
+        restingTicks++;
+        if (restingTicks < SLEEP_TICKS) return;
+        isSleeping = true;
+        oldPosition.set(position);
+        velocity.set(0, 0);
     }
     
     /* Physics / movement */
@@ -162,6 +237,18 @@ public abstract class Collider implements HashGrid.BoundedObject {
         return mass;
     }
     
+    /**
+     * Set how far this collider can move per tick. Fast colliders should
+     * find their hits with the sweep tests of `CollisionResolvers`.
+     */
+    public void setVelocityLimit(float velocityLimit) {
+        this.velocityLimit = velocityLimit;
+    }
+    
+    public float getVelocityLimit() {
+        return velocityLimit;
+    }
+    
     public Vector getAcceleration() {
         return acceleration;
     }
@@ -183,6 +270,7 @@ public abstract class Collider implements HashGrid.BoundedObject {
     }
     
     public void setPosition(float x, float y) {
+        wake();
         position.set(x, y);
         oldPosition.set(x, y);
         velocity.set(0, 0);
@@ -197,10 +285,12 @@ public abstract class Collider implements HashGrid.BoundedObject {
     }
     
     public void applyForceX(float x) {
+        if (x != 0) wake();
         this.acceleration.addX(x / mass);
     }
     
     public void applyForceY(float y) {
+        if (y != 0) wake();
         this.acceleration.addY(y / mass);
     }
     
@@ -237,7 +327,7 @@ public abstract class Collider implements HashGrid.BoundedObject {
             (velocityX + accelerationX * deltaTimeSquared) - friction * velocityX,
             (velocityY + accelerationY * deltaTimeSquared) - friction * velocityY
         );
-        target.limit(VELOCITY_LIMIT);
+        target.limit(velocityLimit);
         position.add(target);
         
         this.subUpdate(deltaTime);
@@ -250,6 +340,18 @@ public abstract class Collider implements HashGrid.BoundedObject {
         acceleration.set(0, 0);
     }
     
+    /**
+     * Finish the setup of a collider that won't be updated, as if it had
+     * been through its first ticks.
+     */
+    public void settle() {
+        oldPosition.set(position);
+        velocity.set(0, 0);
+        ticked = true;
+        this.subUpdate(0);
+        this.limitPositionToWorldBounds();
+    }
+    
     private void limitPositionToWorldBounds() {
         // Limit position to world bounds
         float boundsWidth = colliderWorld.getBounds().getWidth();
@@ -307,6 +409,7 @@ public abstract class Collider implements HashGrid.BoundedObject {
         collider.skipResolutionMask = skipResolutionMask;
         collider.mass = mass;
         collider.friction = friction;
+        collider.velocityLimit = velocityLimit;
         collider.position.set(this.position);
     }
     
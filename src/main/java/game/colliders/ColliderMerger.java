@@ -0,0 +1,197 @@
+package game.colliders;
+
+import game.utils.Vector;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Merges static map colliders into fewer, larger boxes when the map loads.
+ * Maps attach a collider to every wall tile, so a straight wall is a row
+ * of boxes that share their top and bottom edges; those become one box.
+ */
+public class ColliderMerger {
+    // How far apart coordinates can be and still be the same edge
+    private static final float EPSILON = 0.01f;
+    
+    private static class Box {
+        private float minX;
+        private float minY;
+        private float maxX;
+        private float maxY;
+        
+        private Box(float minX, float minY, float maxX, float maxY) {
+            this.minX = minX;
+            this.minY = minY;
+            this.maxX = maxX;
+            this.maxY = maxY;
+        }
+    }
+    
+    /**
+     * Boxes that can be merged together, they come from colliders that
+     * behave the same.
+     */
+    private static class BoxGroup {
+        private final Collider template;
+        private ArrayList<Box> boxes = new ArrayList<>();
+        
+        private BoxGroup(Collider template) {
+            this.template = template;
+        }
+        
+        private boolean accepts(Collider collider) {
+            return template.getCategory() == collider.getCategory() &&
+                template.getMask() == collider.getMask() &&
+                template.getSkipResolutionMask() == collider.getSkipResolutionMask() &&
+                template.getFriction() == collider.getFriction();
+        }
+    }
+    
+    /**
+     * Merge the static colliders made of axis-aligned boxes. Boxes of
+     * colliders with the same category and masks are joined when they
+     * touch along one axis and have the same extent along the other, so
+     * the merged boxes cover exactly the same area. Other colliders are
+     * returned as they are.
+     */
+    public static ArrayList<Collider> merge(List<Collider> colliders) {
+        ArrayList<Collider> result = new ArrayList<>();
+        ArrayList<BoxGroup> groups = new ArrayList<>();
+        ArrayList<Box> boxes = new ArrayList<>();
+        for (Collider collider : colliders) {
+            boxes.clear();
+            if (!collider.isStatic() || !collectBoxes(collider, boxes)) {
+                result.add(collider);
+                continue;
+            }
+            
+            BoxGroup group = null;
+            for (BoxGroup _group : groups) {
+                if (_group.accepts(collider)) {
+                    group = _group;
+                    break;
+                }
+            }
+            if (group == null) {
+                group = new BoxGroup(collider);
+                groups.add(group);
+            }
+            group.boxes.addAll(boxes);
+        }
+        
+        for (BoxGroup group : groups) {
+            // Merging along one axis can line up boxes along the other
+            int count;
+            do {
+                count = group.boxes.size();
+                group.boxes = mergeAlongX(group.boxes);
+                group.boxes = mergeAlongY(group.boxes);
+            } while (group.boxes.size() < count);
+            
+            for (Box box : group.boxes) {
+                result.add(createCollider(box, group.template));
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Write the boxes the collider is made of into `boxes`.
+     *
+     * @returns {boolean} Whether the collider is only made of axis-aligned
+     * boxes.
+     */
+    private static boolean collectBoxes(Collider collider, ArrayList<Box> boxes) {
+        if (collider instanceof PolygonCollider polygonCollider) {
+            float[] normalsX = polygonCollider.getNormalsX();
+            float[] normalsY = polygonCollider.getNormalsY();
+            if (normalsX.length != 4) return false;
+            for (int i = 0; i < normalsX.length; i++) {
+                if (Math.abs(normalsX[i]) > EPSILON && Math.abs(normalsY[i]) > EPSILON) return false;
+            }
+            boxes.add(new Box(
+                polygonCollider.getMinX(),
+                polygonCollider.getMinY(),
+                polygonCollider.getMaxX(),
+                polygonCollider.getMaxY()
+            ));
+            return true;
+        }
+        
+        if (collider instanceof GroupedCollider groupedCollider) {
+            groupedCollider.place();
+            for (Collider collider1 : groupedCollider.getColliders()) {
+                if (!collectBoxes(collider1, boxes)) return false;
+            }
+            return true;
+        }
+        
+        return false;
+    }
+    
+    private static ArrayList<Box> mergeAlongX(ArrayList<Box> boxes) {
+        boxes.sort(
+            Comparator.<Box>comparingDouble(box -> box.minY)
+                .thenComparingDouble(box -> box.maxY)
+                .thenComparingDouble(box -> box.minX)
+        );
+        ArrayList<Box> merged = new ArrayList<>();
+        Box current = null;
+        for (Box box : boxes) {
+            boolean canMerge = current != null &&
+                Math.abs(box.minY - current.minY) <= EPSILON &&
+                Math.abs(box.maxY - current.maxY) <= EPSILON &&
+                box.minX <= current.maxX + EPSILON;
+            if (canMerge) {
+                current.maxX = Math.max(current.maxX, box.maxX);
+                continue;
+            }
+            current = box;
+            merged.add(current);
+        }
+        return merged;
+    }
+    
+    private static ArrayList<Box> mergeAlongY(ArrayList<Box> boxes) {
+        boxes.sort(
+            Comparator.<Box>comparingDouble(box -> box.minX)
+                .thenComparingDouble(box -> box.maxX)
+                .thenComparingDouble(box -> box.minY)
+        );
+        ArrayList<Box> merged = new ArrayList<>();
+        Box current = null;
+        for (Box box : boxes) {
+            boolean canMerge = current != null &&
+                Math.abs(box.minX - current.minX) <= EPSILON &&
+                Math.abs(box.maxX - current.maxX) <= EPSILON &&
+                box.minY <= current.maxY + EPSILON;
+            if (canMerge) {
+                current.maxY = Math.max(current.maxY, box.maxY);
+                continue;
+            }
+            current = box;
+            merged.add(current);
+        }
+        return merged;
+    }
+    
+    private static PolygonCollider createCollider(Box box, Collider template) {
+        float halfWidth = (box.maxX - box.minX) / 2;
+        float halfHeight = (box.maxY - box.minY) / 2;
+        PolygonCollider collider = new PolygonCollider(new Vector[]{
+            new Vector(-halfWidth, -halfHeight),
+            new Vector(halfWidth, -halfHeight),
+            new Vector(halfWidth, halfHeight),
+            new Vector(-halfWidth, halfHeight)
+        });
+        collider.getPosition().set((box.minX + box.maxX) / 2, (box.minY + box.maxY) / 2);
+        collider.setCategory(template.getCategory());
+        collider.setMask(template.getMask());
+        collider.setSkipResolutionMask(template.getSkipResolutionMask());
+        collider.setFriction(template.getFriction());
+        collider.setStatic(true);
+        return collider;
+    }
+}
@@ -1,19 +1,68 @@
 package game.colliders;
 
+import game.utils.BoundingBox;
 import game.utils.Bounds;
-import game.utils.HashGrid;
-import game.utils.Quadtree;
+import game.utils.Broadphase;
+import game.utils.Vector;
+import utils.Async;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
 
 public class ColliderWorld {
     private final ArrayList<Collider> colliders = new ArrayList<>();
-    private final HashGrid<Collider> hashGrid;
+    private final HashMap<Integer, Collider> collidersById = new HashMap<>();
+    private final ArrayDeque<Collider> wakeQueue = new ArrayDeque<>();
+    // Contacts an asleep collider had before being tested in this tick
+    private int[] asleepContacts = new int[16];
+    private int asleepContactCount = 0;
+    // Sorted id pairs of the listened contacts, of this tick and the last one
+    private long[] contactPairs = new long[64];
+    private int contactPairCount = 0;
+    private long[] lastContactPairs = new long[64];
+    private int lastContactPairCount = 0;
+    private boolean isDispatchingContactEvents = false;
+    // Removals requested while updating, applied at the end of the tick
+    private final ArrayList<Collider> pendingRemovals = new ArrayList<>();
+    private boolean isUpdating = false;
+    private final ArrayList<Collider> dynamicColliders = new ArrayList<>();
+    private final ArrayList<Collider> staticColliders = new ArrayList<>();
+    // Static colliders that got contacts in the last tick
+    private final ArrayList<Collider> touchedStaticColliders = new ArrayList<>();
+    // One index per collision category, created when the category is first seen
+    private final Supplier<Broadphase<Collider>> broadphaseFactory;
+    private final ArrayList<CategoryIndex> dynamicIndices = new ArrayList<>();
+    private final ArrayList<CategoryIndex> staticIndices = new ArrayList<>();
+    private boolean isStaticBroadphaseDirty = false;
+    // Below this many pair ranges and colliders to search, splitting the pair search isn't worth it
+    private static final int PARALLEL_MIN_WORK = 256;
+    private final ArrayList<PairBuffer> pairBuffers = new ArrayList<>();
+    private final ArrayList<Future<Void>> pairFutures = new ArrayList<>();
+    // Candidate pairs of the tick, in the order a single buffer finds them
+    private Collider[] pairsA = new Collider[64];
+    private Collider[] pairsB = new Collider[64];
+    private int pairCount = 0;
+    private final SweepQuery sweepQuery = new SweepQuery();
+    // Result list of the running queryNearColliders, added to by the visitor
+    private ArrayList<Collider> nearColliders;
+    private final Broadphase.ItemVisitor<Collider> nearColliderCollector = collider -> nearColliders.add(collider);
+    private boolean isParallel = false;
     private Bounds bounds = new Bounds();
     
-    public ColliderWorld(HashGrid<Collider> hashGrid) {
-        this.hashGrid = hashGrid;
+    /**
+     * @param broadphaseFactory Creates the index of a collision category.
+     *                          Dynamic colliders are indexed again every
+     *                          tick, static ones only when a static
+     *                          collider is added or removed.
+     */
+    public ColliderWorld(Supplier<Broadphase<Collider>> broadphaseFactory) {
+        this.broadphaseFactory = broadphaseFactory;
     }
     
     public void setBounds(Bounds bounds) {
@@ -24,88 +73,759 @@ public class ColliderWorld {
         return bounds;
     }
     
+    /**
+     * Whether the broad-phase pair search may be split across `Async.workers`.
+     * The pairs the chunks find are put back in the order a single search
+     * finds them and resolved on the calling thread, so this doesn't
+     * change the result of a tick.
+     */
+    public void setParallel(boolean isParallel) {
+        this.isParallel = isParallel;
+    }
+    
+    public boolean isParallel() {
+        return isParallel;
+    }
+    
     public ArrayList<Collider> getColliders() {
         return colliders;
     }
     
+    /**
+     * Add a collider to the world. Whether it is static is read here,
+     * so call `setStatic` before adding it.
+     */
     public void addCollider(Collider collider) {
+        if (collider.worldSlot >= 0) return;
+        collider.worldSlot = colliders.size();
         this.colliders.add(collider);
+        this.collidersById.put(collider.getId(), collider);
         collider.setColliderWorld(this);
+        collider.isPartitionedAsStatic = collider.isStatic();
+        if (collider.isPartitionedAsStatic) {
+            collider.partitionSlot = staticColliders.size();
+            staticColliders.add(collider);
+            isStaticBroadphaseDirty = true;
+        } else {
+            collider.partitionSlot = dynamicColliders.size();
+            dynamicColliders.add(collider);
+        }
     }
     
     public void removeCollider(int id) {
-        for (int i = colliders.size() - 1; i >= 0; i--) {
-            Collider collider = colliders.get(i);
-            if (collider.getId() != id) continue;
-            this.colliders.remove(i);
-            collider.getContacts().remove(id);
-        }
+        Collider collider = collidersById.get(id);
+        if (collider == null) return;
+        removeCollider(collider);
     }
     
+    /**
+     * Remove a collider from the world in constant time. While the world is
+     * updating, the removal is queued until the end of the tick.
+     */
     public void removeCollider(Collider collider) {
-        removeCollider(collider.getId());
+        if (collider.worldSlot < 0 || collider.getColliderWorld() != this) return;
+        if (isUpdating) {
+            pendingRemovals.add(collider);
+            return;
+        }
+        
+        removeFromSlot(colliders, collider.worldSlot);
+        collider.worldSlot = -1;
+        this.collidersById.remove(collider.getId());
+        if (collider.isPartitionedAsStatic) {
+            removeFromPartitionSlot(staticColliders, collider.partitionSlot);
+            isStaticBroadphaseDirty = true;
+        } else {
+            removeFromPartitionSlot(dynamicColliders, collider.partitionSlot);
+        }
+        collider.partitionSlot = -1;
+        
+        // Whatever was resting on it may have to move now
+        wakeContacts(collider);
+        endContacts(collider);
+    }
+    
+    /**
+     * Swap the last collider into the given slot.
+     */
+    private static void removeFromSlot(ArrayList<Collider> list, int slot) {
+        Collider last = list.remove(list.size() - 1);
+        if (slot == list.size()) return;
+        list.set(slot, last);
+        last.worldSlot = slot;
+    }
+    
+    private static void removeFromPartitionSlot(ArrayList<Collider> list, int slot) {
+        Collider last = list.remove(list.size() - 1);
+        if (slot == list.size()) return;
+        list.set(slot, last);
+        last.partitionSlot = slot;
+    }
+    
+    private void removePendingColliders() {
+        // Colliders that were queued twice are only removed once
+        for (int i = 0; i < pendingRemovals.size(); i++) {
+            removeCollider(pendingRemovals.get(i));
+        }
+        pendingRemovals.clear();
+    }
+    
+    private void addColliderToBroadphase(ArrayList<CategoryIndex> indices, Collider collider) {
+        CategoryIndex index = null;
+        for (CategoryIndex categoryIndex : indices) {
+            if (categoryIndex.category == collider.getCategory()) {
+                index = categoryIndex;
+                break;
+            }
+        }
+        if (index == null) {
+            index = new CategoryIndex(collider.getCategory(), broadphaseFactory.get());
+            indices.add(index);
+        }
+        index.insert(collider);
     }
     
-    private void addColliderToQuadtree(Collider collider) {
-        hashGrid.insert(collider);
+    /**
+     * Write the dynamic colliders near the given one into `result`. Only the
+     * categories in the mask of the collider are searched.
+     */
+    public void queryNearColliders(Collider collider, ArrayList<Collider> result) {
+        queryNearColliders(collider, collider.getMask(), result);
     }
     
-    private String getPairHash(Collider colliderA, Collider colliderB) {
-        return colliderA.getId() > colliderB.getId() ?
-            colliderA.getId() + ":" + colliderB.getId() :
-            colliderB.getId() + ":" + colliderA.getId();
+    /**
+     * Write the dynamic colliders near the bounds whose category is in the
+     * mask into `result`.
+     */
+    public void queryNearColliders(Broadphase.BoundedObject bounds, int mask, ArrayList<Collider> result) {
+        result.clear();
+        nearColliders = result;
+        for (CategoryIndex index : dynamicIndices) {
+            if ((index.category & mask) == 0) continue;
+            index.broadphase.query(bounds, nearColliderCollector);
+        }
+        nearColliders = null;
+    }
+    
+    /**
+     * Get how far along its motion from start to end a circle first touches
+     * a dynamic collider whose category is in the mask. Static colliders
+     * are skipped, callers test those against the occupancy grid. A radius
+     * of 0 sweeps a line. Only the cells or nodes along the motion are
+     * searched, up to the nearest hit so far.
+     *
+     * @returns {number} The fraction of the motion, or -1 if it touches none.
+     */
+    public float sweepDynamicColliders(
+        float startX,
+        float startY,
+        float endX,
+        float endY,
+        float radius,
+        int mask
+    ) {
+        sweepQuery.start(startX, startY, endX, endY, radius);
+        float maxFraction = 1;
+        for (CategoryIndex index : dynamicIndices) {
+            if ((index.category & mask) == 0) continue;
+            maxFraction = index.broadphase.queryRay(startX, startY, endX, endY, radius, maxFraction, sweepQuery);
+        }
+        return sweepQuery.isHit ? maxFraction : -1;
+    }
+    
+    /**
+     * Visit the colliders whose category is in the mask and whose shape
+     * overlaps the circle, each one once. Meant for one-off queries like
+     * explosions, so nothing has to stay in the world to be found.
+     */
+    public void queryCircle(Vector center, float radius, int mask, Broadphase.ItemVisitor<Collider> visitor) {
+        buildStaticBroadphase();
+        float centerX = center.getX();
+        float centerY = center.getY();
+        BoundingBox bounds = new BoundingBox(centerX - radius, centerY - radius, centerX + radius, centerY + radius);
+        Broadphase.ItemVisitor<Collider> circleVisitor = collider -> {
+            if (CollisionResolvers.testCircleToCollider(centerX, centerY, radius, collider)) {
+                visitor.visit(collider);
+            }
+        };
+        for (CategoryIndex index : staticIndices) {
+            if ((index.category & mask) == 0) continue;
+            index.broadphase.query(bounds, circleVisitor);
+        }
+        for (CategoryIndex index : dynamicIndices) {
+            if ((index.category & mask) == 0) continue;
+            index.broadphase.query(bounds, circleVisitor);
+        }
+    }
+    
+    /**
+     * Wake an asleep collider, and every asleep collider connected to it
+     * through contacts.
+     */
+    void wakeIsland(Collider collider) {
+        collider.setAwake();
+        wakeContacts(collider);
+    }
+    
+    private void wakeContacts(Collider collider) {
+        wakeQueue.add(collider);
+        while (!wakeQueue.isEmpty()) {
+            Collider wokenCollider = wakeQueue.poll();
+            for (int id : wokenCollider.getContacts()) {
+                Collider contact = collidersById.get(id);
+                if (contact == null || contact.isStatic() || !contact.isAsleep()) continue;
+                contact.setAwake();
+                wakeQueue.add(contact);
+            }
+            // Woken in the tick, its contacts are from the tick it fell asleep
+            if (isUpdating) {
+                wokenCollider.getContacts().clear();
+            }
+        }
+    }
+    
+    private void buildStaticBroadphase() {
+        if (!isStaticBroadphaseDirty) return;
+        for (CategoryIndex index : staticIndices) {
+            index.clear();
+        }
+        for (Collider collider : staticColliders) {
+            // Static colliders are never updated, so finish their setup here
+            collider.settle();
+            addColliderToBroadphase(staticIndices, collider);
+        }
+        for (CategoryIndex index : staticIndices) {
+            index.broadphase.build();
+        }
+        isStaticBroadphaseDirty = false;
     }
     
     public void fixedUpdate(float deltaTime) {
-        for (Collider collider : colliders) {
+        isUpdating = true;
+        buildStaticBroadphase();
+        
+        // Static colliders only get contacts through pairs with dynamic ones
+        for (Collider collider : touchedStaticColliders) {
             collider.getContacts().clear();
-            collider.update(deltaTime);
-            addColliderToQuadtree(collider);
         }
+        touchedStaticColliders.clear();
         
-        // Broad-phase collision check
-        HashSet<String> pairs = new HashSet<>();
-        for (Collider colliderA : this.colliders) {
-            ArrayList<Collider> otherColliders = colliderA.getAndUpdateNearColliders(hashGrid);
+        // The indices keep last tick's colliders until here, so they can be
+        // queried while the entities update
+        for (CategoryIndex index : dynamicIndices) {
+            index.clear();
+        }
+        for (Collider collider : dynamicColliders) {
+            // Asleep colliders keep their contacts, they still describe the island
+            if (!collider.isAsleep()) {
+                collider.getContacts().clear();
+                collider.update(deltaTime);
+            }
+            addColliderToBroadphase(dynamicIndices, collider);
+        }
+        
+        // Broad-phase collision check, each pair is found only once
+        findPairs();
+        
+        // Narrow-phase collision check, in the same order every tick
+        for (int i = 0; i < pairCount; i++) {
+            resolvePair(pairsA[i], pairsB[i]);
+        }
+        
+        for (Collider collider : dynamicColliders) {
+            collider.updateSleep();
+        }
+        
+        updateContactEvents();
+        
+        isUpdating = false;
+        removePendingColliders();
+    }
+    
+    private void updateContactEvents() {
+        // Listened contacts of this tick
+        contactPairCount = 0;
+        for (int i = 0; i < pairCount; i++) {
+            maybeAddContactPair(pairsA[i], pairsB[i]);
+        }
+        
+        // Pairs of asleep colliders aren't tested, but they are still touching
+        for (int i = 0; i < lastContactPairCount; i++) {
+            Collider colliderA = collidersById.get(getFirstId(lastContactPairs[i]));
+            Collider colliderB = collidersById.get(getSecondId(lastContactPairs[i]));
+            if (colliderA == null || colliderB == null) continue;
+            if (!colliderA.isAsleep() || !colliderB.isAsleep()) continue;
+            maybeAddContactPair(colliderA, colliderB);
+        }
+        
+        Arrays.sort(contactPairs, 0, contactPairCount);
+        
+        // Diff both sorted sets
+        isDispatchingContactEvents = true;
+        int current = 0;
+        int last = 0;
+        long previousPair = -1;
+        while (current < contactPairCount || last < lastContactPairCount) {
+            long currentPair = current < contactPairCount ? contactPairs[current] : Long.MAX_VALUE;
+            long lastPair = last < lastContactPairCount ? lastContactPairs[last] : Long.MAX_VALUE;
+            if (currentPair == previousPair) {
+                // Drop duplicates
+                current++;
+                continue;
+            }
             
-            for (Collider colliderB : otherColliders) {
-                if (colliderB == null) continue;
-                if (colliderA.getId() == colliderB.getId()) continue;
-                if (colliderA.isAsleep() && colliderB.isAsleep()) {
-                    continue;
+            if (currentPair < lastPair) {
+                dispatchContactEvent(currentPair, ContactEvent.BEGIN);
+                previousPair = currentPair;
+                current++;
+            } else if (currentPair > lastPair) {
+                dispatchContactEvent(lastPair, ContactEvent.END);
+                last++;
+            } else {
+                dispatchContactEvent(currentPair, ContactEvent.PERSIST);
+                previousPair = currentPair;
+                current++;
+                last++;
+            }
+        }
+        isDispatchingContactEvents = false;
+        
+        // Keep this tick's set, without the duplicates, for the next diff
+        long[] pairs = lastContactPairs;
+        lastContactPairs = contactPairs;
+        contactPairs = pairs;
+        lastContactPairCount = 0;
+        for (int i = 0; i < contactPairCount; i++) {
+            if (lastContactPairCount > 0 && lastContactPairs[lastContactPairCount - 1] == lastContactPairs[i]) continue;
+            lastContactPairs[lastContactPairCount++] = lastContactPairs[i];
+        }
+        contactPairCount = 0;
+    }
+    
+    private void maybeAddContactPair(Collider colliderA, Collider colliderB) {
+        if (!colliderA.isListeningTo(colliderB) && !colliderB.isListeningTo(colliderA)) return;
+        if (!colliderA.isCollidingWith(colliderB) && !colliderB.isCollidingWith(colliderA)) return;
+        
+        if (contactPairCount == contactPairs.length) {
+            contactPairs = Arrays.copyOf(contactPairs, contactPairCount * 2);
+            lastContactPairs = Arrays.copyOf(lastContactPairs, contactPairCount * 2);
+        }
+        int idA = colliderA.getId();
+        int idB = colliderB.getId();
+        contactPairs[contactPairCount++] = ((long) Math.min(idA, idB) << 32) | Math.max(idA, idB);
+    }
+    
+    /**
+     * End the listened contacts of a collider that is leaving the world.
+     */
+    private void endContacts(Collider collider) {
+        int count = 0;
+        for (int i = 0; i < lastContactPairCount; i++) {
+            long pair = lastContactPairs[i];
+            if (getFirstId(pair) != collider.getId() && getSecondId(pair) != collider.getId()) {
+                lastContactPairs[count++] = pair;
+                continue;
+            }
+            
+            // The set is being diffed, leave the pair, it is skipped once the collider is gone
+            if (isDispatchingContactEvents) {
+                lastContactPairs[count++] = pair;
+            }
+            
+            Collider other = collidersById.get(
+                getFirstId(pair) == collider.getId() ? getSecondId(pair) : getFirstId(pair)
+            );
+            if (other == null) continue;
+            notifyContact(collider, other, ContactEvent.END);
+            notifyContact(other, collider, ContactEvent.END);
+        }
+        lastContactPairCount = count;
+    }
+    
+    private void dispatchContactEvent(long pair, ContactEvent event) {
+        Collider colliderA = collidersById.get(getFirstId(pair));
+        Collider colliderB = collidersById.get(getSecondId(pair));
+        if (colliderA == null || colliderB == null) return;
+        notifyContact(colliderA, colliderB, event);
+        notifyContact(colliderB, colliderA, event);
+    }
+    
+    private void notifyContact(Collider collider, Collider other, ContactEvent event) {
+        if (!collider.isListeningTo(other)) return;
+        switch (event) {
+            case BEGIN -> collider.getContactListener().onContactBegin(other);
+            case PERSIST -> collider.getContactListener().onContactPersist(other);
+            case END -> collider.getContactListener().onContactEnd(other);
+        }
+    }
+    
+    private static int getFirstId(long pair) {
+        return (int) (pair >>> 32);
+    }
+    
+    private static int getSecondId(long pair) {
+        return (int) pair;
+    }
+    
+    private enum ContactEvent {
+        BEGIN,
+        PERSIST,
+        END
+    }
+    
+    private void findPairs() {
+        // Build the indices here, the buffers only read them
+        int work = dynamicColliders.size();
+        for (CategoryIndex index : dynamicIndices) {
+            work += index.broadphase.getPairRangeCount();
+        }
+        int chunkCount = 1;
+        if (isParallel && work >= PARALLEL_MIN_WORK) {
+            // One chunk per worker, plus one for the calling thread
+            chunkCount = Runtime.getRuntime().availableProcessors();
+        }
+        
+        while (pairBuffers.size() < chunkCount) {
+            pairBuffers.add(new PairBuffer(dynamicIndices, staticIndices, dynamicColliders));
+        }
+        
+        // Each buffer takes its share of every search, buffers past the
+        // chunk count are left empty
+        for (int i = 0; i < pairBuffers.size(); i++) {
+            PairBuffer pairBuffer = pairBuffers.get(i);
+            pairBuffer.clear();
+            pairBuffer.chunk = Math.min(i, chunkCount);
+            pairBuffer.chunkCount = chunkCount;
+        }
+        
+        pairFutures.clear();
+        for (int i = 1; i < chunkCount; i++) {
+            pairFutures.add(Async.workers.submit(pairBuffers.get(i)));
+        }
+        pairBuffers.get(0).call();
+        
+        // The buffers are written until their tasks are done, so wait for
+        // all of them even if interrupted
+        boolean isInterrupted = false;
+        for (Future<Void> future : pairFutures) {
+            while (true) {
+                try {
+                    future.get();
+                    break;
+                } catch (InterruptedException e) {
+                    isInterrupted = true;
+                } catch (ExecutionException e) {
+                    throw new RuntimeException(e.getCause());
                 }
-                
-                if (!colliderA.shouldCollideWith(colliderB)) {
-                    continue;
+            }
+        }
+        if (isInterrupted) Thread.currentThread().interrupt();
+        
+        mergePairBuffers(chunkCount);
+    }
+    
+    /**
+     * Put the pairs of the buffers in the order a single buffer finds
+     * them. Every buffer goes through the same sections of the search,
+     * and within a section the buffers hold consecutive shares, so the
+     * sections are joined buffer by buffer.
+     */
+    private void mergePairBuffers(int chunkCount) {
+        Arrays.fill(pairsA, 0, pairCount, null);
+        Arrays.fill(pairsB, 0, pairCount, null);
+        pairCount = 0;
+        
+        int sectionCount = pairBuffers.getFirst().sectionCount;
+        for (int section = 0; section < sectionCount; section++) {
+            for (int chunk = 0; chunk < chunkCount; chunk++) {
+                PairBuffer pairBuffer = pairBuffers.get(chunk);
+                int start = section == 0 ? 0 : pairBuffer.sectionEnds[section - 1];
+                int end = pairBuffer.sectionEnds[section];
+                if (pairCount + end - start > pairsA.length) {
+                    int length = Math.max(pairsA.length * 2, pairCount + end - start);
+                    pairsA = Arrays.copyOf(pairsA, length);
+                    pairsB = Arrays.copyOf(pairsB, length);
                 }
-                
-                // Detect (AABB)
-                boolean isCollidingAABB = CollisionResolvers.testAABB(
-                    colliderA.getPosition().getX() - colliderA.getWidth() / 2,
-                    colliderA.getPosition().getY() - colliderA.getHeight() / 2,
-                    colliderA.getWidth(),
-                    colliderA.getHeight(),
-                    colliderB.getPosition().getX() - colliderB.getWidth() / 2,
-                    colliderB.getPosition().getY() - colliderB.getHeight() / 2,
-                    colliderB.getWidth(),
-                    colliderB.getHeight()
-                );
-                if (!isCollidingAABB) {
-                    continue;
+                System.arraycopy(pairBuffer.collidersA, start, pairsA, pairCount, end - start);
+                System.arraycopy(pairBuffer.collidersB, start, pairsB, pairCount, end - start);
+                pairCount += end - start;
+            }
+        }
+    }
+    
+    private void resolvePair(Collider colliderA, Collider colliderB) {
+        // Pairs of asleep colliders aren't found, so at most one is asleep
+        Collider asleepCollider = null;
+        Collider otherCollider = null;
+        if (colliderA.isAsleep() && !colliderA.isStatic()) {
+            asleepCollider = colliderA;
+            otherCollider = colliderB;
+        } else if (colliderB.isAsleep() && !colliderB.isStatic()) {
+            asleepCollider = colliderB;
+            otherCollider = colliderA;
+        }
+        // Its contacts are stale, set them aside so they don't count in the mass ratios
+        if (asleepCollider != null) {
+            takeAsleepContacts(asleepCollider);
+        }
+        
+        if (colliderB.isStatic()) {
+            touchedStaticColliders.add(colliderB);
+        }
+        
+        // Resolve in id order so the result doesn't depend on the broadphase order
+        if (colliderA.getId() < colliderB.getId()) {
+            colliderA.resolveCollision(colliderB);
+        } else {
+            colliderB.resolveCollision(colliderA);
+        }
+        
+        if (asleepCollider == null) return;
+        if (asleepCollider.isCollidingWith(otherCollider)) {
+            // Touched, so it wakes with only this tick's contacts, and its island with it
+            asleepCollider.setAwake();
+            wakeAsleepContacts();
+        } else {
+            // Still asleep, but no longer touching the other one
+            restoreAsleepContacts(asleepCollider, otherCollider);
+        }
+    }
+    
+    private void takeAsleepContacts(Collider collider) {
+        asleepContactCount = 0;
+        if (asleepContacts.length < collider.getContacts().size()) {
+            asleepContacts = new int[collider.getContacts().size() * 2];
+        }
+        for (int id : collider.getContacts()) {
+            asleepContacts[asleepContactCount++] = id;
+        }
+        collider.getContacts().clear();
+    }
+    
+    private void restoreAsleepContacts(Collider collider, Collider otherCollider) {
+        for (int i = 0; i < asleepContactCount; i++) {
+            if (asleepContacts[i] == otherCollider.getId()) continue;
+            collider.getContacts().add(asleepContacts[i]);
+        }
+    }
+    
+    private void wakeAsleepContacts() {
+        for (int i = 0; i < asleepContactCount; i++) {
+            Collider contact = collidersById.get(asleepContacts[i]);
+            if (contact == null || contact.isStatic() || !contact.isAsleep()) continue;
+            contact.setAwake();
+            wakeContacts(contact);
+        }
+    }
+    
+    /**
+     * Finds the nearest hit of a circle swept over a motion, the limit of
+     * the ray search is the nearest hit so far.
+     */
+    private static class SweepQuery implements Broadphase.RayVisitor<Collider> {
+        private float startX = 0;
+        private float startY = 0;
+        private float endX = 0;
+        private float endY = 0;
+        private float radius = 0;
+        private boolean isHit = false;
+        
+        public void start(float startX, float startY, float endX, float endY, float radius) {
+            this.startX = startX;
+            this.startY = startY;
+            this.endX = endX;
+            this.endY = endY;
+            this.radius = radius;
+            this.isHit = false;
+        }
+        
+        @Override
+        public float visit(Collider collider, float maxFraction) {
+            float fraction = radius > 0
+                ? CollisionResolvers.sweepCircleToCollider(startX, startY, endX, endY, radius, collider)
+                : CollisionResolvers.getLineToColliderIntersectionFraction(startX, startY, endX, endY, collider);
+            if (fraction < 0 || fraction > maxFraction) return maxFraction;
+            isHit = true;
+            return fraction;
+        }
+    }
+    
+    /**
+     * The colliders of one category, and the union of their masks.
+     */
+    private static class CategoryIndex {
+        private final int category;
+        private final Broadphase<Collider> broadphase;
+        private final ArrayList<Collider> colliders = new ArrayList<>();
+        private int mask = 0;
+        
+        public CategoryIndex(int category, Broadphase<Collider> broadphase) {
+            this.category = category;
+            this.broadphase = broadphase;
+        }
+        
+        public void clear() {
+            broadphase.clear();
+            colliders.clear();
+            mask = 0;
+        }
+        
+        public void insert(Collider collider) {
+            broadphase.insert(collider);
+            colliders.add(collider);
+            mask |= collider.getMask();
+        }
+        
+        /**
+         * Whether any collider of this category may collide with any of the
+         * other one, see `Collider.shouldCollideWith`.
+         */
+        public boolean mayCollideWith(CategoryIndex index) {
+            return (index.category & mask) != 0 || (index.mask & category) != 0;
+        }
+        
+        public boolean mayCollideWith(Collider collider) {
+            return (collider.getCategory() & mask) != 0 || (collider.getMask() & category) != 0;
+        }
+    }
+    
+    /**
+     * Collects its share of the candidate pairs: within each category, across
+     * the categories that may collide, and of the dynamic colliders with the
+     * static ones. Only reads collider state, so several buffers can be
+     * filled at the same time.
+     */
+    private static class PairBuffer implements Broadphase.PairVisitor<Collider>, Broadphase.ItemVisitor<Collider>, Callable<Void> {
+        private final ArrayList<CategoryIndex> dynamicIndices;
+        private final ArrayList<CategoryIndex> staticIndices;
+        private final ArrayList<Collider> dynamicColliders;
+        private Collider[] collidersA = new Collider[64];
+        private Collider[] collidersB = new Collider[64];
+        private int size = 0;
+        // Size of the buffer at the end of each section of the search
+        private int[] sectionEnds = new int[8];
+        private int sectionCount = 0;
+        private int chunk = 0;
+        private int chunkCount = 1;
+        // The collider whose neighbours in another category are being visited
+        private Collider queryCollider = null;
+        
+        public PairBuffer(
+            ArrayList<CategoryIndex> dynamicIndices,
+            ArrayList<CategoryIndex> staticIndices,
+            ArrayList<Collider> dynamicColliders
+        ) {
+            this.dynamicIndices = dynamicIndices;
+            this.staticIndices = staticIndices;
+            this.dynamicColliders = dynamicColliders;
+        }
+        
+        public void clear() {
+            // Drop references so removed colliders can be collected
+            Arrays.fill(collidersA, 0, size, null);
+            Arrays.fill(collidersB, 0, size, null);
+            size = 0;
+            sectionCount = 0;
+        }
+        
+        private void endSection() {
+            if (sectionCount == sectionEnds.length) {
+                sectionEnds = Arrays.copyOf(sectionEnds, sectionCount * 2);
+            }
+            sectionEnds[sectionCount++] = size;
+        }
+        
+        /**
+         * Get where the share of this buffer starts in `count` items.
+         */
+        private int getStart(int count) {
+            return (int) ((long) count * chunk / chunkCount);
+        }
+        
+        private int getEnd(int count) {
+            return (int) ((long) count * Math.min(chunk + 1, chunkCount) / chunkCount);
+        }
+        
+        @Override
+        public Void call() {
+            for (CategoryIndex index : dynamicIndices) {
+                if (!index.mayCollideWith(index)) continue;
+                int rangeCount = index.broadphase.getPairRangeCount();
+                index.broadphase.forEachPair(getStart(rangeCount), getEnd(rangeCount), this);
+                endSection();
+            }
+            
+            for (int i = 0; i < dynamicIndices.size(); i++) {
+                for (int j = i + 1; j < dynamicIndices.size(); j++) {
+                    CategoryIndex indexA = dynamicIndices.get(i);
+                    CategoryIndex indexB = dynamicIndices.get(j);
+                    if (!indexA.mayCollideWith(indexB)) continue;
+                    // Query the larger index with the colliders of the smaller one
+                    if (indexA.colliders.size() > indexB.colliders.size()) {
+                        indexA = indexB;
+                        indexB = dynamicIndices.get(i);
+                    }
+                    int end = getEnd(indexA.colliders.size());
+                    for (int k = getStart(indexA.colliders.size()); k < end; k++) {
+                        queryCollider = indexA.colliders.get(k);
+                        indexB.broadphase.query(queryCollider, this);
+                    }
+                    endSection();
                 }
-                
-                /*
-                 * Pair to avoid redundant collisions. For example, if we
-                 * already checked objectA vs. objectB, we don't have to
-                 * check objectB vs. objectA
-                 */
-                String pairHash = getPairHash(colliderA, colliderB);
-                if (pairs.contains(pairHash)) {
-                    continue;
+            }
+            
+            int end = getEnd(dynamicColliders.size());
+            for (int i = getStart(dynamicColliders.size()); i < end; i++) {
+                queryCollider = dynamicColliders.get(i);
+                // Static colliders are always asleep
+                if (queryCollider.isAsleep()) continue;
+                for (CategoryIndex index : staticIndices) {
+                    if (!index.mayCollideWith(queryCollider)) continue;
+                    index.broadphase.query(queryCollider, this);
                 }
-                pairs.add(pairHash);
-                colliderA.resolveCollision(colliderB);
             }
+            endSection();
+            queryCollider = null;
+            return null;
+        }
+        
+        @Override
+        public void visit(Collider collider) {
+            visit(queryCollider, collider);
+        }
+        
+        @Override
+        public void visit(Collider colliderA, Collider colliderB) {
+            if (colliderA.isAsleep() && colliderB.isAsleep()) {
+                return;
+            }
+            
+            if (!colliderA.shouldCollideWith(colliderB)) {
+                return;
+            }
+            
+            // Detect (AABB)
+            boolean isCollidingAABB = CollisionResolvers.testAABB(
+                colliderA.getPosition().getX() - colliderA.getWidth() / 2,
+                colliderA.getPosition().getY() - colliderA.getHeight() / 2,
+                colliderA.getWidth(),
+                colliderA.getHeight(),
+                colliderB.getPosition().getX() - colliderB.getWidth() / 2,
+                colliderB.getPosition().getY() - colliderB.getHeight() / 2,
+                colliderB.getWidth(),
+                colliderB.getHeight()
+            );
+            if (!isCollidingAABB) {
+                return;
+            }
+            
+            if (size == collidersA.length) {
+                collidersA = Arrays.copyOf(collidersA, size * 2);
+                collidersB = Arrays.copyOf(collidersB, size * 2);
+            }
+            collidersA[size] = colliderA;
+            collidersB[size] = colliderB;
+            size++;
         }
     }
 }
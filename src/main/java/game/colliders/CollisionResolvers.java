@@ -19,56 +19,157 @@ public abstract class CollisionResolvers {
         return true;
     }
     
-    public static Vector getLineToCircleIntersectionPoint(
-        Vector linePointA,
-        Vector linePointB,
-        Vector circlePosition,
-        float circleRadius
+    /**
+     * Get where the line from A to B first enters the circle. The point is
+     * written into `result` when given, which may be null to only test.
+     *
+     * @returns {boolean} Whether the line enters the circle.
+     */
+    public static boolean getLineToCircleIntersectionPoint(
+        float pointAX,
+        float pointAY,
+        float pointBX,
+        float pointBY,
+        float circleX,
+        float circleY,
+        float circleRadius,
+        Vector result
     ) {
         // Check if either points are inside the circle
+        float radiusSquared = circleRadius * circleRadius;
         if (
-            linePointA.getDistanceFrom(circlePosition) <= circleRadius ||
-                linePointB.getDistanceFrom(circlePosition) <= circleRadius
+            getDistanceSquared(pointAX, pointAY, circleX, circleY) <= radiusSquared ||
+                getDistanceSquared(pointBX, pointBY, circleX, circleY) <= radiusSquared
         ) {
-            return null;
+            return false;
         }
         
-        float lineLength = linePointA.getDistanceFrom(linePointB);
-        
-        Vector lineDist = linePointB.clone().subtract(linePointA);
-        float dot = (float) (
-            circlePosition
-                .clone()
-                .subtract(linePointA)
-                .dot(lineDist) / Math.pow(lineLength, 2)
-        );
+        float lineX = pointBX - pointAX;
+        float lineY = pointBY - pointAY;
+        float lineLengthSquared = lineX * lineX + lineY * lineY;
+        float lineLength = (float) Math.sqrt(lineLengthSquared);
+        float dot = ((circleX - pointAX) * lineX + (circleY - pointAY) * lineY) / lineLengthSquared;
         
-        Vector closestPoint = linePointA.clone().add(lineDist.clone().scale(dot));
+        float closestX = pointAX + lineX * dot;
+        float closestY = pointAY + lineY * dot;
         
         // Check if the closest point is in line
         float lineBuffer = 0.1f;
-        float closestPointLineDist = closestPoint.getDistanceFrom(linePointA) + closestPoint.getDistanceFrom(linePointB);
+        float closestPointLineDist = (float) (
+            Math.sqrt(getDistanceSquared(closestX, closestY, pointAX, pointAY)) +
+                Math.sqrt(getDistanceSquared(closestX, closestY, pointBX, pointBY))
+        );
         boolean isInLine = closestPointLineDist >= lineLength - lineBuffer && closestPointLineDist <= lineLength + lineBuffer;
         if (!isInLine) {
-            return null;
+            return false;
         }
         
-        if (closestPoint.getDistanceFrom(circlePosition) > circleRadius) {
-            return null;
+        float closestPointDistanceSquared = getDistanceSquared(closestX, closestY, circleX, circleY);
+        if (closestPointDistanceSquared > radiusSquared) {
+            return false;
         }
         
-        float closestPointDistance = closestPoint
-            .clone()
-            .subtract(circlePosition)
-            .getMagnitude();
+        if (result != null) {
+            float intersectionDistance = (float) Math.sqrt(radiusSquared - closestPointDistanceSquared);
+            result.set(
+                closestX - lineX / lineLength * intersectionDistance,
+                closestY - lineY / lineLength * intersectionDistance
+            );
+        }
         
-        float intersectionDistance = (float) Math.sqrt(
-            circleRadius * circleRadius - closestPointDistance * closestPointDistance
+        return true;
+    }
+    
+    public static Vector getLineToCircleIntersectionPoint(
+        Vector linePointA,
+        Vector linePointB,
+        Vector circlePosition,
+        float circleRadius
+    ) {
+        Vector result = new Vector();
+        boolean isIntersecting = getLineToCircleIntersectionPoint(
+            linePointA.getX(),
+            linePointA.getY(),
+            linePointB.getX(),
+            linePointB.getY(),
+            circlePosition.getX(),
+            circlePosition.getY(),
+            circleRadius,
+            result
         );
+        return isIntersecting ? result : null;
+    }
+    
+    /**
+     * Get how far along the line from A to B it crosses the segment
+     * from C to D, as a fraction of the line's length.
+     *
+     * @returns {number} The fraction, or -1 if they don't cross.
+     */
+    public static float getLineToLineIntersectionFraction(
+        float pointAX,
+        float pointAY,
+        float pointBX,
+        float pointBY,
+        float pointCX,
+        float pointCY,
+        float pointDX,
+        float pointDY
+    ) {
+        // https://en.wikipedia.org/wiki/Line%E2%80%93line_intersection
+        float distDCX = pointDX - pointCX;
+        float distDCY = pointDY - pointCY;
+        float distACX = pointAX - pointCX;
+        float distACY = pointAY - pointCY;
+        float distBAX = pointBX - pointAX;
+        float distBAY = pointBY - pointAY;
+        float denominator = distDCY * distBAX - distDCX * distBAY;
+        float uA = (distDCX * distACY - distDCY * distACX) / denominator;
+        float uB = (distBAX * distACY - distBAY * distACX) / denominator;
         
-        return closestPoint.subtract(
-            lineDist.normalize().scale(intersectionDistance)
-        );
+        // if uA and uB are between 0-1, lines are colliding
+        if (uA >= 0 && uA <= 1 && uB >= 0 && uB <= 1) {
+            return uA;
+        }
+        
+        return -1;
+    }
+    
+    /**
+     * Get where the line from A to B first crosses the edges of a polygon
+     * whose vertices are given in world space.
+     *
+     * @returns {boolean} Whether the line crosses the polygon.
+     */
+    public static boolean getLineToPolygonIntersectionPoint(
+        float pointAX,
+        float pointAY,
+        float pointBX,
+        float pointBY,
+        float[] verticesX,
+        float[] verticesY,
+        Vector result
+    ) {
+        int vertexCount = verticesX.length;
+        float min = Float.MAX_VALUE;
+        for (int i = 0; i < vertexCount; i++) {
+            int next = (i + 1) % vertexCount;
+            float fraction = getLineToLineIntersectionFraction(
+                pointAX,
+                pointAY,
+                pointBX,
+                pointBY,
+                verticesX[i],
+                verticesY[i],
+                verticesX[next],
+                verticesY[next]
+            );
+            if (fraction >= 0 && fraction < min) {
+                min = fraction;
+            }
+        }
+        
+        return writeLineIntersection(pointAX, pointAY, pointBX, pointBY, min, result);
     }
     
     public static Vector getLineToPolygonIntersectionPoint(
@@ -79,39 +180,66 @@ public abstract class CollisionResolvers {
     ) {
         int vertexCount = polygonVertices.length;
         float min = Float.MAX_VALUE;
-        Vector intersectionPoint = null;
         for (int i = 0; i < vertexCount; i++) {
-            // Pair 2 points that will act as the line
-            Vector linePointC = polygonVertices[i]
-                .clone()
-                .add(polygonPosition);
-            Vector linePointD = polygonVertices[(i + 1) % vertexCount]
-                .clone()
-                .add(polygonPosition);
-            
-            // calculate the distance to intersection point
-            // https://en.wikipedia.org/wiki/Line%E2%80%93line_intersection
-            Vector distDC = linePointD.clone().subtract(linePointC);
-            Vector distAC = linePointA.clone().subtract(linePointC);
-            Vector distBA = linePointB.clone().subtract(linePointA);
-            var uA = (distDC.getX() * distAC.getY() - distDC.getY() * distAC.getX()) / (distDC.getY() * distBA.getX() - distDC.getX() * distBA.getY());
-            var uB = (distBA.getX() * distAC.getY() - distBA.getY() * distAC.getX()) / (distDC.getY() * distBA.getX() - distDC.getX() * distBA.getY());
-            
-            // if uA and uB are between 0-1, lines are colliding
-            if (uA >= 0 && uA <= 1 && uB >= 0 && uB <= 1) {
-                Vector intersection = new Vector(
-                    linePointA.getX() + (uA * distBA.getX()),
-                    linePointA.getY() + (uA * distBA.getY())
-                );
-                float dist = linePointA.getDistanceFrom(intersection);
-                if (dist < min) {
-                    intersectionPoint = intersection;
-                    min = dist;
-                }
+            Vector pointC = polygonVertices[i];
+            Vector pointD = polygonVertices[(i + 1) % vertexCount];
+            float fraction = getLineToLineIntersectionFraction(
+                linePointA.getX(),
+                linePointA.getY(),
+                linePointB.getX(),
+                linePointB.getY(),
+                pointC.getX() + polygonPosition.getX(),
+                pointC.getY() + polygonPosition.getY(),
+                pointD.getX() + polygonPosition.getX(),
+                pointD.getY() + polygonPosition.getY()
+            );
+            if (fraction >= 0 && fraction < min) {
+                min = fraction;
             }
         }
         
-        return intersectionPoint;
+        Vector result = new Vector();
+        boolean isIntersecting = writeLineIntersection(
+            linePointA.getX(),
+            linePointA.getY(),
+            linePointB.getX(),
+            linePointB.getY(),
+            min,
+            result
+        );
+        return isIntersecting ? result : null;
+    }
+    
+    /**
+     * Get where the line from A to B first crosses the edges of the bounds,
+     * given by its top left corner and size.
+     *
+     * @returns {boolean} Whether the line crosses the bounds.
+     */
+    public static boolean getLineToBoundsIntersectionPoint(
+        float pointAX,
+        float pointAY,
+        float pointBX,
+        float pointBY,
+        float x,
+        float y,
+        float width,
+        float height,
+        Vector result
+    ) {
+        float right = x + width;
+        float bottom = y + height;
+        float min = Float.MAX_VALUE;
+        float fraction = getLineToLineIntersectionFraction(pointAX, pointAY, pointBX, pointBY, x, y, right, y);
+        if (fraction >= 0 && fraction < min) min = fraction;
+        fraction = getLineToLineIntersectionFraction(pointAX, pointAY, pointBX, pointBY, right, y, right, bottom);
+        if (fraction >= 0 && fraction < min) min = fraction;
+        fraction = getLineToLineIntersectionFraction(pointAX, pointAY, pointBX, pointBY, right, bottom, x, bottom);
+        if (fraction >= 0 && fraction < min) min = fraction;
+        fraction = getLineToLineIntersectionFraction(pointAX, pointAY, pointBX, pointBY, x, bottom, x, y);
+        if (fraction >= 0 && fraction < min) min = fraction;
+        
+        return writeLineIntersection(pointAX, pointAY, pointBX, pointBY, min, result);
     }
     
     public static Vector getLineToBoundsIntersectionPoint(
@@ -119,55 +247,542 @@ public abstract class CollisionResolvers {
         Vector linePointB,
         Bounds bounds
     ) {
-        float x = bounds.getX();
-        float y = bounds.getY();
-        float width = bounds.getWidth();
-        float height = bounds.getHeight();
-        
-        Vector[] boundsVertices = {
-            new Vector(),
-            new Vector(width, 0),
-            new Vector(width, height),
-            new Vector(0, height)
-        };
-        
-        return getLineToPolygonIntersectionPoint(
-            linePointA,
-            linePointB,
-            new Vector(x, y),
-            boundsVertices
+        Vector result = new Vector();
+        boolean isIntersecting = getLineToBoundsIntersectionPoint(
+            linePointA.getX(),
+            linePointA.getY(),
+            linePointB.getX(),
+            linePointB.getY(),
+            bounds.getX(),
+            bounds.getY(),
+            bounds.getWidth(),
+            bounds.getHeight(),
+            result
         );
+        return isIntersecting ? result : null;
     }
     
-    public static Vector getLineToColliderIntersectionPoint(
-        Vector linePointA,
-        Vector linePointB,
-        Collider collider
+    /**
+     * Get where the line from A to B first crosses the collider. The point
+     * is written into `result` when given, which may be null to only test.
+     *
+     * @returns {boolean} Whether the line crosses the collider.
+     */
+    public static boolean getLineToColliderIntersectionPoint(
+        float pointAX,
+        float pointAY,
+        float pointBX,
+        float pointBY,
+        Collider collider,
+        Vector result
     ) {
         if (collider instanceof CircleCollider circleCollider) {
             return getLineToCircleIntersectionPoint(
-                linePointA,
-                linePointB,
-                circleCollider.getPosition(),
-                circleCollider.getRadius()
+                pointAX,
+                pointAY,
+                pointBX,
+                pointBY,
+                circleCollider.getPosition().getX(),
+                circleCollider.getPosition().getY(),
+                circleCollider.getRadius(),
+                result
             );
         } else if (collider instanceof PolygonCollider polygonCollider) {
             return getLineToPolygonIntersectionPoint(
-                linePointA,
-                linePointB,
-                polygonCollider.getPosition(),
-                polygonCollider.getVertices()
+                pointAX,
+                pointAY,
+                pointBX,
+                pointBY,
+                polygonCollider.getWorldVerticesX(),
+                polygonCollider.getWorldVerticesY(),
+                result
             );
         } else if (collider instanceof GroupedCollider groupedCollider) {
             for (Collider collider1 : groupedCollider.getColliders()) {
-                Vector intersectionPoint = getLineToColliderIntersectionPoint(linePointA, linePointB, collider1);
-                if (intersectionPoint != null) {
-                    return intersectionPoint;
+                if (getLineToColliderIntersectionPoint(pointAX, pointAY, pointBX, pointBY, collider1, result)) {
+                    return true;
                 }
             }
         }
         
-        return null;
+        return false;
+    }
+    
+    public static Vector getLineToColliderIntersectionPoint(
+        Vector linePointA,
+        Vector linePointB,
+        Collider collider
+    ) {
+        Vector result = new Vector();
+        boolean isIntersecting = getLineToColliderIntersectionPoint(
+            linePointA.getX(),
+            linePointA.getY(),
+            linePointB.getX(),
+            linePointB.getY(),
+            collider,
+            result
+        );
+        return isIntersecting ? result : null;
+    }
+    
+    /**
+     * Get how far along its motion from start to end a moving circle first
+     * touches the bounds, as a fraction of the motion. The bounds are given
+     * by their top left corner and size. Their corners are treated as
+     * square, so a hit near a corner can be reported slightly early.
+     *
+     * @returns {number} The fraction, or -1 if it doesn't touch them.
+     */
+    public static float sweepCircleToBounds(
+        float startX,
+        float startY,
+        float endX,
+        float endY,
+        float radius,
+        float x,
+        float y,
+        float width,
+        float height
+    ) {
+        // Grow the bounds by the radius and cast the center against them
+        float minX = x - radius;
+        float minY = y - radius;
+        float maxX = x + width + radius;
+        float maxY = y + height + radius;
+        float motionX = endX - startX;
+        float motionY = endY - startY;
+        float enter = 0;
+        float exit = 1;
+        
+        if (motionX == 0) {
+            if (startX < minX || startX > maxX) return -1;
+        } else {
+            float fractionA = (minX - startX) / motionX;
+            float fractionB = (maxX - startX) / motionX;
+            enter = Math.max(enter, Math.min(fractionA, fractionB));
+            exit = Math.min(exit, Math.max(fractionA, fractionB));
+        }
+        
+        if (motionY == 0) {
+            if (startY < minY || startY > maxY) return -1;
+        } else {
+            float fractionA = (minY - startY) / motionY;
+            float fractionB = (maxY - startY) / motionY;
+            enter = Math.max(enter, Math.min(fractionA, fractionB));
+            exit = Math.min(exit, Math.max(fractionA, fractionB));
+        }
+        
+        return enter <= exit ? enter : -1;
+    }
+    
+    /**
+     * Get how far along its motion from start to end a moving circle first
+     * touches another circle, as a fraction of the motion.
+     *
+     * @returns {number} The fraction, or -1 if it doesn't touch it.
+     */
+    public static float sweepCircleToCircle(
+        float startX,
+        float startY,
+        float endX,
+        float endY,
+        float radius,
+        float circleX,
+        float circleY,
+        float circleRadius
+    ) {
+        float radiusSum = radius + circleRadius;
+        float offsetX = startX - circleX;
+        float offsetY = startY - circleY;
+        float c = offsetX * offsetX + offsetY * offsetY - radiusSum * radiusSum;
+        if (c <= 0) return 0;
+        
+        // Solve |offset + motion * t| = radiusSum for the first t
+        float motionX = endX - startX;
+        float motionY = endY - startY;
+        float a = motionX * motionX + motionY * motionY;
+        if (a == 0) return -1;
+        float b = 2 * (offsetX * motionX + offsetY * motionY);
+        float discriminant = b * b - 4 * a * c;
+        if (discriminant < 0) return -1;
+        
+        float fraction = (float) ((-b - Math.sqrt(discriminant)) / (2 * a));
+        return fraction >= 0 && fraction <= 1 ? fraction : -1;
+    }
+    
+    /**
+     * Get how far along its motion from start to end a moving circle first
+     * touches the segment from C to D, as a fraction of the motion.
+     *
+     * @returns {number} The fraction, or -1 if it doesn't touch it.
+     */
+    public static float sweepCircleToSegment(
+        float startX,
+        float startY,
+        float endX,
+        float endY,
+        float radius,
+        float pointCX,
+        float pointCY,
+        float pointDX,
+        float pointDY
+    ) {
+        float edgeX = pointDX - pointCX;
+        float edgeY = pointDY - pointCY;
+        float edgeLength = (float) Math.sqrt(edgeX * edgeX + edgeY * edgeY);
+        if (edgeLength == 0) {
+            return sweepCircleToCircle(startX, startY, endX, endY, radius, pointCX, pointCY, 0);
+        }
+        
+        float directionX = edgeX / edgeLength;
+        float directionY = edgeY / edgeLength;
+        float normalX = -directionY;
+        float normalY = directionX;
+        float motionX = endX - startX;
+        float motionY = endY - startY;
+        
+        // Already touching
+        float alongEdge = (startX - pointCX) * directionX + (startY - pointCY) * directionY;
+        float clampedAlongEdge = Math.max(0, Math.min(edgeLength, alongEdge));
+        float closestX = pointCX + directionX * clampedAlongEdge;
+        float closestY = pointCY + directionY * clampedAlongEdge;
+        if (getDistanceSquared(startX, startY, closestX, closestY) <= radius * radius) {
+            return 0;
+        }
+        
+        float min = Float.MAX_VALUE;
+        
+        // The sides of the capsule around the segment
+        float motionDotNormal = motionX * normalX + motionY * normalY;
+        if (motionDotNormal != 0) {
+            float startDistance = (startX - pointCX) * normalX + (startY - pointCY) * normalY;
+            float side = startDistance > 0 ? radius : -radius;
+            float fraction = (side - startDistance) / motionDotNormal;
+            if (fraction >= 0 && fraction <= 1) {
+                float hitAlongEdge = (startX + motionX * fraction - pointCX) * directionX +
+                    (startY + motionY * fraction - pointCY) * directionY;
+                if (hitAlongEdge >= 0 && hitAlongEdge <= edgeLength) {
+                    min = fraction;
+                }
+            }
+        }
+        
+        // The rounded ends of the capsule
+        float fraction = sweepCircleToCircle(startX, startY, endX, endY, radius, pointCX, pointCY, 0);
+        if (fraction >= 0 && fraction < min) min = fraction;
+        fraction = sweepCircleToCircle(startX, startY, endX, endY, radius, pointDX, pointDY, 0);
+        if (fraction >= 0 && fraction < min) min = fraction;
+        
+        return min == Float.MAX_VALUE ? -1 : min;
+    }
+    
+    /**
+     * Get how far along the line from A to B it first reaches the collider,
+     * as a fraction of the line. A line that starts inside of a circle
+     * doesn't reach it, one that starts inside of a polygon reaches it
+     * where it leaves.
+     *
+     * @returns {number} The fraction, or -1 if it doesn't reach it.
+     */
+    public static float getLineToColliderIntersectionFraction(
+        float pointAX,
+        float pointAY,
+        float pointBX,
+        float pointBY,
+        Collider collider
+    ) {
+        if (collider instanceof CircleCollider circleCollider) {
+            float lineX = pointBX - pointAX;
+            float lineY = pointBY - pointAY;
+            float offsetX = pointAX - circleCollider.getPosition().getX();
+            float offsetY = pointAY - circleCollider.getPosition().getY();
+            float radius = circleCollider.getRadius();
+            float a = lineX * lineX + lineY * lineY;
+            float b = offsetX * lineX + offsetY * lineY;
+            float c = offsetX * offsetX + offsetY * offsetY - radius * radius;
+            if (c <= 0 || a == 0) return -1;
+            float discriminant = b * b - a * c;
+            if (discriminant < 0) return -1;
+            float fraction = (-b - (float) Math.sqrt(discriminant)) / a;
+            return fraction >= 0 && fraction <= 1 ? fraction : -1;
+        }
+        
+        float min = Float.MAX_VALUE;
+        if (collider instanceof PolygonCollider polygonCollider) {
+            float[] verticesX = polygonCollider.getWorldVerticesX();
+            float[] verticesY = polygonCollider.getWorldVerticesY();
+            int vertexCount = verticesX.length;
+            for (int i = 0; i < vertexCount; i++) {
+                int next = (i + 1) % vertexCount;
+                float fraction = getLineToLineIntersectionFraction(
+                    pointAX,
+                    pointAY,
+                    pointBX,
+                    pointBY,
+                    verticesX[i],
+                    verticesY[i],
+                    verticesX[next],
+                    verticesY[next]
+                );
+                if (fraction >= 0 && fraction < min) min = fraction;
+            }
+        } else if (collider instanceof GroupedCollider groupedCollider) {
+            for (Collider collider1 : groupedCollider.getColliders()) {
+                float fraction = getLineToColliderIntersectionFraction(pointAX, pointAY, pointBX, pointBY, collider1);
+                if (fraction >= 0 && fraction < min) min = fraction;
+            }
+        }
+        
+        return min == Float.MAX_VALUE ? -1 : min;
+    }
+    
+    /**
+     * Test whether the bounds overlap the shape of the collider. Shapes that
+     * only touch the bounds don't overlap them.
+     */
+    public static boolean testBoundsToCollider(
+        float x,
+        float y,
+        float width,
+        float height,
+        Collider collider
+    ) {
+        if (collider instanceof CircleCollider circleCollider) {
+            float centerX = circleCollider.getPosition().getX();
+            float centerY = circleCollider.getPosition().getY();
+            float radius = circleCollider.getRadius();
+            float closestX = Math.max(x, Math.min(centerX, x + width));
+            float closestY = Math.max(y, Math.min(centerY, y + height));
+            return getDistanceSquared(closestX, closestY, centerX, centerY) < radius * radius;
+        }
+        
+        if (collider instanceof PolygonCollider polygonCollider) {
+            // Axes of the bounds
+            if (polygonCollider.getMaxX() <= x || x + width <= polygonCollider.getMinX()) return false;
+            if (polygonCollider.getMaxY() <= y || y + height <= polygonCollider.getMinY()) return false;
+            
+            // Axes of the polygon
+            float[] verticesX = polygonCollider.getWorldVerticesX();
+            float[] verticesY = polygonCollider.getWorldVerticesY();
+            float[] normalsX = polygonCollider.getNormalsX();
+            float[] normalsY = polygonCollider.getNormalsY();
+            for (int i = 0; i < normalsX.length; i++) {
+                float normalX = normalsX[i];
+                float normalY = normalsY[i];
+                float polygonMin = Float.MAX_VALUE;
+                float polygonMax = -Float.MAX_VALUE;
+                for (int j = 0; j < verticesX.length; j++) {
+                    float projection = verticesX[j] * normalX + verticesY[j] * normalY;
+                    polygonMin = Math.min(polygonMin, projection);
+                    polygonMax = Math.max(polygonMax, projection);
+                }
+                
+                // The nearest and farthest corners of the bounds along the normal
+                float boundsMin = (normalX < 0 ? x + width : x) * normalX + (normalY < 0 ? y + height : y) * normalY;
+                float boundsMax = (normalX < 0 ? x : x + width) * normalX + (normalY < 0 ? y : y + height) * normalY;
+                if (polygonMax <= boundsMin || boundsMax <= polygonMin) return false;
+            }
+            return true;
+        }
+        
+        if (collider instanceof GroupedCollider groupedCollider) {
+            for (Collider collider1 : groupedCollider.getColliders()) {
+                if (testBoundsToCollider(x, y, width, height, collider1)) return true;
+            }
+            return false;
+        }
+        
+        float halfWidth = collider.getWidth() / 2;
+        float halfHeight = collider.getHeight() / 2;
+        if (collider.getPosition().getX() + halfWidth <= x || x + width <= collider.getPosition().getX() - halfWidth) {
+            return false;
+        }
+        return collider.getPosition().getY() + halfHeight > y && y + height > collider.getPosition().getY() - halfHeight;
+    }
+    
+    /**
+     * Test whether the circle overlaps the shape of the collider, touching
+     * counts.
+     */
+    public static boolean testCircleToCollider(float centerX, float centerY, float radius, Collider collider) {
+        if (collider instanceof CircleCollider circleCollider) {
+            float radiusSum = radius + circleCollider.getRadius();
+            return getDistanceSquared(
+                centerX,
+                centerY,
+                circleCollider.getPosition().getX(),
+                circleCollider.getPosition().getY()
+            ) <= radiusSum * radiusSum;
+        }
+        
+        if (collider instanceof PolygonCollider polygonCollider) {
+            float[] verticesX = polygonCollider.getWorldVerticesX();
+            float[] verticesY = polygonCollider.getWorldVerticesY();
+            float[] normalsX = polygonCollider.getNormalsX();
+            float[] normalsY = polygonCollider.getNormalsY();
+            
+            // Axis from the nearest vertex to the center
+            float nearestX = verticesX[0];
+            float nearestY = verticesY[0];
+            for (int i = 1; i < verticesX.length; i++) {
+                if (
+                    getDistanceSquared(verticesX[i], verticesY[i], centerX, centerY) <
+                        getDistanceSquared(nearestX, nearestY, centerX, centerY)
+                ) {
+                    nearestX = verticesX[i];
+                    nearestY = verticesY[i];
+                }
+            }
+            float vertexDistance = (float) Math.sqrt(getDistanceSquared(nearestX, nearestY, centerX, centerY));
+            if (vertexDistance == 0) return true;
+            if (isSeparatedFromCircle(
+                verticesX,
+                verticesY,
+                (centerX - nearestX) / vertexDistance,
+                (centerY - nearestY) / vertexDistance,
+                centerX,
+                centerY,
+                radius
+            )) {
+                return false;
+            }
+            
+            // Axes of the polygon
+            for (int i = 0; i < normalsX.length; i++) {
+                if (isSeparatedFromCircle(verticesX, verticesY, normalsX[i], normalsY[i], centerX, centerY, radius)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        
+        if (collider instanceof GroupedCollider groupedCollider) {
+            for (Collider collider1 : groupedCollider.getColliders()) {
+                if (testCircleToCollider(centerX, centerY, radius, collider1)) return true;
+            }
+            return false;
+        }
+        
+        return testBoundsToCollider(centerX - radius, centerY - radius, radius * 2, radius * 2, collider);
+    }
+    
+    /**
+     * Whether the projections of the vertices and of the circle on a unit
+     * axis are apart.
+     */
+    private static boolean isSeparatedFromCircle(
+        float[] verticesX,
+        float[] verticesY,
+        float axisX,
+        float axisY,
+        float centerX,
+        float centerY,
+        float radius
+    ) {
+        float min = Float.MAX_VALUE;
+        float max = -Float.MAX_VALUE;
+        for (int i = 0; i < verticesX.length; i++) {
+            float projection = verticesX[i] * axisX + verticesY[i] * axisY;
+            min = Math.min(min, projection);
+            max = Math.max(max, projection);
+        }
+        float center = centerX * axisX + centerY * axisY;
+        return center + radius < min || max < center - radius;
+    }
+    
+    /**
+     * Get how far along its motion from start to end a moving circle first
+     * touches the collider, as a fraction of the motion.
+     *
+     * @returns {number} The fraction, or -1 if it doesn't touch it.
+     */
+    public static float sweepCircleToCollider(
+        float startX,
+        float startY,
+        float endX,
+        float endY,
+        float radius,
+        Collider collider
+    ) {
+        // Nothing to do if the collider's bounds aren't on the way
+        float boundsFraction = sweepCircleToBounds(
+            startX,
+            startY,
+            endX,
+            endY,
+            radius,
+            collider.getPosition().getX() - collider.getWidth() / 2,
+            collider.getPosition().getY() - collider.getHeight() / 2,
+            collider.getWidth(),
+            collider.getHeight()
+        );
+        if (boundsFraction < 0) return -1;
+        
+        if (collider instanceof CircleCollider circleCollider) {
+            return sweepCircleToCircle(
+                startX,
+                startY,
+                endX,
+                endY,
+                radius,
+                circleCollider.getPosition().getX(),
+                circleCollider.getPosition().getY(),
+                circleCollider.getRadius()
+            );
+        }
+        
+        float min = Float.MAX_VALUE;
+        if (collider instanceof PolygonCollider polygonCollider) {
+            float[] verticesX = polygonCollider.getWorldVerticesX();
+            float[] verticesY = polygonCollider.getWorldVerticesY();
+            int vertexCount = verticesX.length;
+            for (int i = 0; i < vertexCount; i++) {
+                int next = (i + 1) % vertexCount;
+                float fraction = sweepCircleToSegment(
+                    startX,
+                    startY,
+                    endX,
+                    endY,
+                    radius,
+                    verticesX[i],
+                    verticesY[i],
+                    verticesX[next],
+                    verticesY[next]
+                );
+                if (fraction >= 0 && fraction < min) min = fraction;
+            }
+        } else if (collider instanceof GroupedCollider groupedCollider) {
+            for (Collider collider1 : groupedCollider.getColliders()) {
+                float fraction = sweepCircleToCollider(startX, startY, endX, endY, radius, collider1);
+                if (fraction >= 0 && fraction < min) min = fraction;
+            }
+        }
+        
+        return min == Float.MAX_VALUE ? -1 : min;
+    }
+    
+    private static boolean writeLineIntersection(
+        float pointAX,
+        float pointAY,
+        float pointBX,
+        float pointBY,
+        float fraction,
+        Vector result
+    ) {
+        if (fraction == Float.MAX_VALUE) return false;
+        if (result != null) {
+            result.set(
+                pointAX + fraction * (pointBX - pointAX),
+                pointAY + fraction * (pointBY - pointAY)
+            );
+        }
+        return true;
+    }
+    
+    private static float getDistanceSquared(float x1, float y1, float x2, float y2) {
+        float distanceX = x2 - x1;
+        float distanceY = y2 - y1;
+        return distanceX * distanceX + distanceY * distanceY;
     }
     
     public static void circleToCircle(
@@ -175,9 +790,9 @@ public abstract class CollisionResolvers {
         CircleCollider circleB
     ) {
         // Detect (Pythagorean Theorem)
-        float distanceSquared = circleA
-            .getPosition()
-            .getDistanceSquaredFrom(circleB.getPosition());
+        float distanceX = circleB.getPosition().getX() - circleA.getPosition().getX();
+        float distanceY = circleB.getPosition().getY() - circleA.getPosition().getY();
+        float distanceSquared = distanceX * distanceX + distanceY * distanceY;
         float radiusSum = circleA.getRadius() + circleB.getRadius();
         boolean isColliding = distanceSquared < radiusSum * radiusSum;
         
@@ -195,20 +810,20 @@ public abstract class CollisionResolvers {
         // Resolve collision
         float distance = (float) Math.sqrt(distanceSquared);
         float overlap = radiusSum - distance;
-        Vector collisionNormal = circleB.getPosition().clone().subtract(circleA.getPosition()).divide(distance);
-        Vector displacement = collisionNormal.scale(overlap);
+        float displacementX = distanceX / distance * overlap;
+        float displacementY = distanceY / distance * overlap;
         
         if (!circleA.isStatic() && !circleB.isStatic()) {
             float totalMass = (circleA.getMass() + circleB.getMass()) * (circleA.getContacts().size() + circleB.getContacts().size());
             float ratioA = (circleB.getMass() * circleB.getContacts().size()) / totalMass;
             float ratioB = (circleA.getMass() * circleA.getContacts().size()) / totalMass;
             
-            circleA.getPosition().subtract(displacement.clone().scale(ratioA));
-            circleB.getPosition().add(displacement.clone().scale(ratioB));
+            circleA.getPosition().subtract(displacementX * ratioA, displacementY * ratioA);
+            circleB.getPosition().add(displacementX * ratioB, displacementY * ratioB);
         } else if (!circleA.isStatic()) { // Only circleA moves
-            circleA.getPosition().subtract(displacement);
+            circleA.getPosition().subtract(displacementX, displacementY);
         } else if (!circleB.isStatic()) { // Only circleB moves
-            circleB.getPosition().add(displacement);
+            circleB.getPosition().add(displacementX, displacementY);
         }
     }
     
@@ -216,36 +831,41 @@ public abstract class CollisionResolvers {
         CircleCollider circle,
         PolygonCollider polygon
     ) {
+        float circleX = circle.getPosition().getX();
+        float circleY = circle.getPosition().getY();
+        float radius = circle.getRadius();
+        
+        // Shapes can't collide if their bounds don't
+        if (
+            circleX + radius < polygon.getMinX() || polygon.getMaxX() < circleX - radius ||
+                circleY + radius < polygon.getMinY() || polygon.getMaxY() < circleY - radius
+        ) {
+            return;
+        }
+        
         // Detect (Separating Axes Theorem)
-        Vector mtv = null;
+        float[] verticesX = polygon.getWorldVerticesX();
+        float[] verticesY = polygon.getWorldVerticesY();
+        float[] normalsX = polygon.getNormalsX();
+        float[] normalsY = polygon.getNormalsY();
+        int vertexCount = verticesX.length;
+        float mtvX = 0;
+        float mtvY = 0;
         float minOverlap = Float.MAX_VALUE;
-        int vertexCount = polygon.getVertices().length;
         for (int i = 0; i < vertexCount; i++) {
-            // Pair 2 points that will act as the line
-            Vector pointA = polygon
-                .getVertices()[i]
-                .clone()
-                .add(polygon.getPosition());
-            Vector pointB = polygon
-                .getVertices()[(i + 1) % vertexCount]
-                .clone()
-                .add(polygon.getPosition());
-            
-            // Get normal of the current line
-            Vector normal = pointB.clone().subtract(pointA).normal();
+            float normalX = normalsX[i];
+            float normalY = normalsY[i];
             
             // Get projection of circle to normal axis
-            float lineLength = pointA.getDistanceFrom(pointB);
-            float circleDot = circle.getPosition().clone().dot(normal) / lineLength;
-            float circleMin = circleDot - circle.getRadius();
-            float circleMax = circleDot + circle.getRadius();
+            float circleDot = circleX * normalX + circleY * normalY;
+            float circleMin = circleDot - radius;
+            float circleMax = circleDot + radius;
             
             // Get projection of each vertex in a polygon to normal axis
             float polygonMin = Float.MAX_VALUE;
             float polygonMax = -Float.MAX_VALUE;
-            for (Vector vertex : polygon.getVertices()) {
-                Vector vertexTransformed = vertex.clone().add(polygon.getPosition());
-                float vertexDot = vertexTransformed.dot(normal) / lineLength;
+            for (int j = 0; j < vertexCount; j++) {
+                float vertexDot = verticesX[j] * normalX + verticesY[j] * normalY;
                 polygonMin = Math.min(vertexDot, polygonMin);
                 polygonMax = Math.max(vertexDot, polygonMax);
             }
@@ -264,7 +884,8 @@ public abstract class CollisionResolvers {
             float overlap = Math.abs(Math.min(circleMax, polygonMax) - Math.max(circleMin, polygonMin));
             if (overlap < minOverlap) {
                 minOverlap = overlap;
-                mtv = normal;
+                mtvX = normalX;
+                mtvY = normalY;
             }
         }
         
@@ -275,40 +896,31 @@ public abstract class CollisionResolvers {
          */
         
         // Get closest the point of polygon to circle
-        Vector closestVectorToCircle = null;
+        int closestVertex = 0;
         float minDistance = Float.MAX_VALUE;
-        for (Vector vertex : polygon.getVertices()) {
-            Vector transformedVertex = vertex.clone().add(
-                polygon.getPosition()
-            );
-            float distance = transformedVertex.getDistanceSquaredFrom(
-                circle.getPosition()
-            );
+        for (int i = 0; i < vertexCount; i++) {
+            float distanceX = verticesX[i] - circleX;
+            float distanceY = verticesY[i] - circleY;
+            float distance = distanceX * distanceX + distanceY * distanceY;
             if (distance < minDistance) {
-                closestVectorToCircle = transformedVertex;
+                closestVertex = i;
                 minDistance = distance;
             }
         }
         
-        assert closestVectorToCircle != null;
-        
-        // Get axis points
-        Vector pointA = circle.getPosition().clone();
-        Vector pointB = closestVectorToCircle.clone();
-        
         // Get projection of circle to axis
-        Vector normal = pointB.clone().subtract(pointA);
         float lineLength = (float) Math.sqrt(minDistance);
-        float circleDot = circle.getPosition().clone().dot(normal) / lineLength;
-        float circleMin = circleDot - circle.getRadius();
-        float circleMax = circleDot + circle.getRadius();
+        float normalX = (verticesX[closestVertex] - circleX) / lineLength;
+        float normalY = (verticesY[closestVertex] - circleY) / lineLength;
+        float circleDot = circleX * normalX + circleY * normalY;
+        float circleMin = circleDot - radius;
+        float circleMax = circleDot + radius;
         
         // Get projection of each vertex in a polygon to axis
         float polygonMin = Float.MAX_VALUE;
         float polygonMax = -Float.MAX_VALUE;
-        for (Vector vertex : polygon.getVertices()) {
-            Vector vertexTransformed = vertex.clone().add(polygon.getPosition());
-            float vertexDot = vertexTransformed.dot(normal) / lineLength;
+        for (int j = 0; j < vertexCount; j++) {
+            float vertexDot = verticesX[j] * normalX + verticesY[j] * normalY;
             polygonMin = Math.min(vertexDot, polygonMin);
             polygonMax = Math.max(vertexDot, polygonMax);
         }
@@ -335,30 +947,30 @@ public abstract class CollisionResolvers {
         float overlap = Math.abs(Math.min(circleMax, polygonMax) - Math.max(circleMin, polygonMin));
         if (overlap < minOverlap) {
             minOverlap = overlap;
-            mtv = normal;
+            mtvX = normalX;
+            mtvY = normalY;
         }
         
         // Resolve
-        if (mtv == null) return;
-        mtv.normalize().scale(minOverlap);
-        Vector centerToCenter = polygon.getPosition().clone().subtract(
-            circle.getPosition()
-        );
-        float direction = mtv.dot(centerToCenter) < 0 ? 1 : -1;
+        if (minOverlap == Float.MAX_VALUE) return;
+        float centerToCenterX = polygon.getPosition().getX() - circleX;
+        float centerToCenterY = polygon.getPosition().getY() - circleY;
+        float direction = mtvX * centerToCenterX + mtvY * centerToCenterY < 0 ? 1 : -1;
+        mtvX *= minOverlap * direction;
+        mtvY *= minOverlap * direction;
         
-        mtv.scale(direction);
         if (!circle.isStatic() && !polygon.isStatic()) {
             float totalMass = (circle.getMass() + polygon.getMass()) * (circle.getContacts().size() + polygon.getContacts().size());
             float ratioA = (polygon.getMass() * polygon.getContacts().size()) / totalMass;
             float ratioB = (circle.getMass() * circle.getContacts().size()) / totalMass;
             
             // Apply MTV based on mass ratios
-            circle.getPosition().add(mtv.clone().scale(ratioA));
-            polygon.getPosition().subtract(mtv.clone().scale(ratioB));
+            circle.getPosition().add(mtvX * ratioA, mtvY * ratioA);
+            polygon.getPosition().subtract(mtvX * ratioB, mtvY * ratioB);
         } else if (!circle.isStatic()) {
-            circle.getPosition().add(mtv);
+            circle.getPosition().add(mtvX, mtvY);
         } else if (!polygon.isStatic()) {
-            polygon.getPosition().subtract(mtv);
+            polygon.getPosition().subtract(mtvX, mtvY);
         }
     }
     
@@ -366,68 +978,65 @@ public abstract class CollisionResolvers {
         PolygonCollider polygonA,
         PolygonCollider polygonB
     ) {
+        // Shapes can't collide if their bounds don't
+        if (
+            polygonA.getMaxX() < polygonB.getMinX() || polygonB.getMaxX() < polygonA.getMinX() ||
+                polygonA.getMaxY() < polygonB.getMinY() || polygonB.getMaxY() < polygonA.getMinY()
+        ) {
+            return;
+        }
+        
         // Detect (Separating Axes Theorem)
-        Vector mtv = null;
+        float[] verticesAX = polygonA.getWorldVerticesX();
+        float[] verticesAY = polygonA.getWorldVerticesY();
+        float[] verticesBX = polygonB.getWorldVerticesX();
+        float[] verticesBY = polygonB.getWorldVerticesY();
+        float mtvX = 0;
+        float mtvY = 0;
         float minOverlap = Float.MAX_VALUE;
-        boolean swapped = false;
-        for (int i = 0; i < polygonA.getVertices().length; i++) {
-            // Pair 2 points that will act as the line
-            Vector pointA = polygonA
-                .getVertices()[i]
-                .clone()
-                .add(polygonA.getPosition());
-            Vector pointB = polygonA
-                .getVertices()[(i + 1) % polygonA.getVertices().length]
-                .clone()
-                .add(polygonA.getPosition());
-            
-            // Get normal of the current line
-            Vector normal = pointB.clone().subtract(pointA).normal();
-            
-            // Get projection of polygonA to normal
-            float lineLength = pointA.getDistanceFrom(pointB);
-            float polygonAMin = Float.MAX_VALUE;
-            float polygonAMax = -Float.MAX_VALUE;
-            for (Vector vertex : polygonA.getVertices()) {
-                Vector vertexTransformed = vertex.clone().add(polygonA.getPosition());
-                float vertexDot = vertexTransformed.dot(normal) / lineLength;
-                polygonAMin = Math.min(vertexDot, polygonAMin);
-                polygonAMax = Math.max(vertexDot, polygonAMax);
-            }
-            
-            // Get projection of polygonB to normal
-            float polygonBMin = Float.MAX_VALUE;
-            float polygonBMax = -Float.MAX_VALUE;
-            for (Vector vertex : polygonB.getVertices()) {
-                Vector vertexTransformed = vertex.clone().add(polygonB.getPosition());
-                float vertexDot = vertexTransformed.dot(normal) / lineLength;
-                polygonBMin = Math.min(vertexDot, polygonBMin);
-                polygonBMax = Math.max(vertexDot, polygonBMax);
-            }
-            
-            boolean isIntersecting = polygonAMax >= polygonBMin && polygonBMax >= polygonAMin;
-            
-            // If there's at least 1 case where the projections don't
-            // intersect, it means that both shapes aren't colliding.
-            if (!isIntersecting) {
-                return;
-            }
-            
-            // Calculate overlap
-            float overlap = Math.abs(Math.min(polygonAMax, polygonBMax) - Math.max(polygonAMin, polygonBMin));
-            if (overlap < minOverlap) {
-                minOverlap = overlap;
-                mtv = normal;
-            }
-            
-            // Check other way around if the last axis still intersects
-            boolean isLast = i == polygonA.getVertices().length - 1;
-            if (isLast && !swapped) {
-                PolygonCollider polygonATemp = polygonA;
-                polygonA = polygonB;
-                polygonB = polygonATemp;
-                i = -1;
-                swapped = true;
+        
+        // Test the edge normals of polygonA, then the ones of polygonB
+        for (int side = 0; side < 2; side++) {
+            PolygonCollider polygon = side == 0 ? polygonA : polygonB;
+            float[] normalsX = polygon.getNormalsX();
+            float[] normalsY = polygon.getNormalsY();
+            for (int i = 0; i < normalsX.length; i++) {
+                float normalX = normalsX[i];
+                float normalY = normalsY[i];
+                
+                // Get projection of polygonA to normal
+                float polygonAMin = Float.MAX_VALUE;
+                float polygonAMax = -Float.MAX_VALUE;
+                for (int j = 0; j < verticesAX.length; j++) {
+                    float vertexDot = verticesAX[j] * normalX + verticesAY[j] * normalY;
+                    polygonAMin = Math.min(vertexDot, polygonAMin);
+                    polygonAMax = Math.max(vertexDot, polygonAMax);
+                }
+                
+                // Get projection of polygonB to normal
+                float polygonBMin = Float.MAX_VALUE;
+                float polygonBMax = -Float.MAX_VALUE;
+                for (int j = 0; j < verticesBX.length; j++) {
+                    float vertexDot = verticesBX[j] * normalX + verticesBY[j] * normalY;
+                    polygonBMin = Math.min(vertexDot, polygonBMin);
+                    polygonBMax = Math.max(vertexDot, polygonBMax);
+                }
+                
+                boolean isIntersecting = polygonAMax >= polygonBMin && polygonBMax >= polygonAMin;
+                
+                // If there's at least 1 case where the projections don't
+                // intersect, it means that both shapes aren't colliding.
+                if (!isIntersecting) {
+                    return;
+                }
+                
+                // Calculate overlap
+                float overlap = Math.abs(Math.min(polygonAMax, polygonBMax) - Math.max(polygonAMin, polygonBMin));
+                if (overlap < minOverlap) {
+                    minOverlap = overlap;
+                    mtvX = normalX;
+                    mtvY = normalY;
+                }
             }
         }
         
@@ -444,13 +1053,12 @@ public abstract class CollisionResolvers {
         }
         
         // Resolve
-        if (mtv == null) return;
-        mtv.normalize().scale(minOverlap);
-        Vector centerToCenter = polygonB.getPosition().clone().subtract(
-            polygonA.getPosition()
-        );
-        float direction = mtv.dot(centerToCenter) < 0 ? 1 : -1;
-        mtv.scale(direction);
+        if (minOverlap == Float.MAX_VALUE) return;
+        float centerToCenterX = polygonB.getPosition().getX() - polygonA.getPosition().getX();
+        float centerToCenterY = polygonB.getPosition().getY() - polygonA.getPosition().getY();
+        float direction = mtvX * centerToCenterX + mtvY * centerToCenterY < 0 ? 1 : -1;
+        mtvX *= minOverlap * direction;
+        mtvY *= minOverlap * direction;
         
         if (!polygonA.isStatic() && !polygonB.isStatic()) {
             float totalMass = (polygonA.getMass() + polygonB.getMass()) * (polygonA.getContacts().size() + polygonB.getContacts().size());
@@ -458,12 +1066,12 @@ public abstract class CollisionResolvers {
             float ratioB = (polygonA.getMass() * polygonA.getContacts().size()) / totalMass;
             
             // Apply MTV based on mass ratios
-            polygonA.getPosition().add(mtv.clone().scale(ratioA));
-            polygonB.getPosition().subtract(mtv.clone().scale(ratioB));
+            polygonA.getPosition().add(mtvX * ratioA, mtvY * ratioA);
+            polygonB.getPosition().subtract(mtvX * ratioB, mtvY * ratioB);
         } else if (!polygonA.isStatic()) {
-            polygonA.getPosition().add(mtv);
+            polygonA.getPosition().add(mtvX, mtvY);
         } else if (!polygonB.isStatic()) {
-            polygonB.getPosition().subtract(mtv);
+            polygonB.getPosition().subtract(mtvX, mtvY);
         }
     }
-}
\ No newline at end of file
+}
@@ -3,29 +3,30 @@ package game.colliders;
 import game.utils.Bounds;
 import game.utils.Vector;
 
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.HashMap;
-
+/**
+ * A compound collider, made of children that keep their offset from its
+ * center. The offsets and the bounds are worked out once, so moving the
+ * group is a few additions per child, and a static group is placed once
+ * and never again. A push that a child of a dynamic group gets moves the
+ * whole group.
+ */
 public class GroupedCollider extends Collider {
-    private final ArrayList<Collider> colliders = new ArrayList<>();
-    private final HashMap<Integer, Vector> constraints = new HashMap<>();
-    private float width = 0;
-    private float height = 0;
+    private final Collider[] colliders;
+    // Offsets of the children from the center of the group
+    private final float[] offsetsX;
+    private final float[] offsetsY;
+    // Center of the children's bounds, where they were given
+    private final float localCenterX;
+    private final float localCenterY;
+    private final float width;
+    private final float height;
+    private boolean isSetUp = false;
     
     public GroupedCollider(Collider[] colliders) {
-        this.colliders.addAll(Arrays.stream(colliders).toList());
+        this.colliders = colliders.clone();
+        this.offsetsX = new float[colliders.length];
+        this.offsetsY = new float[colliders.length];
         
-        for (Collider collider : colliders) {
-            Vector distance = collider.getPosition().clone().subtract(getPosition());
-            constraints.put(collider.getId(), distance);
-        }
-        
-        width = getBounds().getWidth();
-        height = getBounds().getHeight();
-    }
-    
-    private Bounds getBounds() {
         float minX = Float.MAX_VALUE;
         float maxX = -Float.MAX_VALUE;
         float minY = Float.MAX_VALUE;
@@ -42,27 +43,14 @@ public class GroupedCollider extends Collider {
         maxX = maxX == -Float.MAX_VALUE ? 0 : maxX;
         maxY = maxY == -Float.MAX_VALUE ? 0 : maxY;
         
-        return new Bounds(
-            (minX + maxX) / 2,
-            (minY + maxY) / 2,
-            maxX - minX,
-            maxY - minY
-        );
-    }
-    
-    
-    
-    /**
-     * Check if the given collider is colliding with this collider.
-     */
-    @Override
-    public boolean isCollidingWith(Collider collider) {
-        for (Collider _collider : colliders) {
-            boolean isColliding = _collider.isCollidingWith(collider);
-            if (isColliding) return true;
+        localCenterX = (minX + maxX) / 2;
+        localCenterY = (minY + maxY) / 2;
+        width = maxX - minX;
+        height = maxY - minY;
+        for (int i = 0; i < colliders.length; i++) {
+            offsetsX[i] = colliders[i].getPosition().getX() - localCenterX;
+            offsetsY[i] = colliders[i].getPosition().getY() - localCenterY;
         }
-        
-        return false;
     }
     
     /**
@@ -102,8 +90,9 @@ public class GroupedCollider extends Collider {
     }
     
     private void setup() {
+        // The group is centered on its children's bounds
+        getPosition().add(localCenterX, localCenterY);
         for (Collider collider : colliders) {
-            collider.setPosition(collider.getPosition().clone().add(getPosition()));
             collider.setMass(getMass());
             collider.setFriction(getFriction());
             collider.setStatic(isStatic());
@@ -111,36 +100,64 @@ public class GroupedCollider extends Collider {
             collider.setCategory(getCategory());
             collider.setColliderWorld(getColliderWorld());
         }
+        placeColliders();
+    }
+    
+    /**
+     * Move the children to their offsets from the center.
+     */
+    private void placeColliders() {
+        float x = getPosition().getX();
+        float y = getPosition().getY();
+        for (int i = 0; i < colliders.length; i++) {
+            colliders[i].getPosition().set(x + offsetsX[i], y + offsetsY[i]);
+        }
     }
     
-    public ArrayList<Collider> getColliders() {
+    public Collider[] getColliders() {
         return colliders;
     }
     
-    private boolean ticked = false;
+    /**
+     * Center the group and place the children, if it isn't done yet.
+     */
+    void place() {
+        if (isSetUp) return;
+        this.setup();
+        isSetUp = true;
+    }
+    
+    @Override
+    protected void update(float deltaTime) {
+        // Center the group before its first step, so it isn't taken as a motion
+        if (!isSetUp) {
+            place();
+            getOldPosition().set(getPosition());
+        }
+        super.update(deltaTime);
+    }
     
     @Override
     public void subUpdate(float deltaTime) {
-        if (!ticked) {
-            this.setup();
-            ticked = true;
+        if (!isSetUp) {
+            place();
+            return;
         }
         
-        Bounds bounds = getBounds();
-        getPosition().set(bounds.getX(), bounds.getY());
-        
-        // maintain the colliders distance from center
-        for (Collider collider : colliders) {
-            Vector targetDistance = constraints.get(collider.getId());
-            collider.getPosition().set(getPosition().clone().add(targetDistance));
-        }
+        // Static children stay where the setup put them
+        if (isStatic()) return;
+        placeColliders();
     }
     
     @Override
     public Collider clone() {
-        GroupedCollider clone = new GroupedCollider(
-            this.colliders.stream().map(Collider::clone).toArray(Collider[]::new)
-        );
+        // Give the clones their offsets back, as the children may be placed already
+        Collider[] clones = new Collider[colliders.length];
+        for (int i = 0; i < colliders.length; i++) {
+            clones[i] = colliders[i].clone();
+            clones[i].getPosition().set(localCenterX + offsetsX[i], localCenterY + offsetsY[i]);
+        }
+        GroupedCollider clone = new GroupedCollider(clones);
         clone.setMass(getMass());
         clone.setFriction(getFriction());
         clone.setStatic(isStatic());
@@ -150,48 +167,37 @@ public class GroupedCollider extends Collider {
         return clone;
     }
     
-    private void resolveCollisions(Collider colliderA, Collider colliderB) {
-        if (
-            colliderA instanceof PolygonCollider &&
-                colliderB instanceof PolygonCollider
-        ) {
-            CollisionResolvers.polygonToPolygon(
-                (PolygonCollider) colliderA,
-                (PolygonCollider) colliderB
-            );
-        } else if (
-            colliderA instanceof CircleCollider &&
-                colliderB instanceof PolygonCollider
-        ) {
-            CollisionResolvers.circleToPolygon(
-                (CircleCollider) colliderA,
-                (PolygonCollider) colliderB
-            );
-        } else if (
-            colliderB instanceof CircleCollider &&
-                colliderA instanceof PolygonCollider
-        ) {
-            CollisionResolvers.circleToPolygon(
-                (CircleCollider) colliderB,
-                (PolygonCollider) colliderA
-            );
-        } else if (
-            colliderA instanceof CircleCollider &&
-                colliderB instanceof CircleCollider
-        ) {
-            CollisionResolvers.circleToCircle(
-                (CircleCollider) colliderA,
-                (CircleCollider) colliderB
-            );
-        }
-    }
-    
+    /**
+     * Resolve the children whose bounds reach the other collider. Each child
+     * dispatches on the other collider itself, and the contacts it makes
+     * are kept on the group. If the group is dynamic, the push a child gets
+     * is given to the group, and the children are placed again.
+     */
     @Override
     public void resolveCollision(Collider otherCollider) {
-        getContacts().clear();
+        float otherHalfWidth = otherCollider.getWidth() / 2;
+        float otherHalfHeight = otherCollider.getHeight() / 2;
+        float otherX = otherCollider.getPosition().getX();
+        float otherY = otherCollider.getPosition().getY();
         for (Collider collider : colliders) {
-            resolveCollisions(collider, otherCollider);
-            getContacts().addAll(collider.getContacts());
+            float halfWidth = collider.getWidth() / 2;
+            float halfHeight = collider.getHeight() / 2;
+            if (Math.abs(collider.getPosition().getX() - otherX) > halfWidth + otherHalfWidth) continue;
+            if (Math.abs(collider.getPosition().getY() - otherY) > halfHeight + otherHalfHeight) continue;
+            
+            float childX = collider.getPosition().getX();
+            float childY = collider.getPosition().getY();
+            collider.getContacts().clear();
+            collider.resolveCollision(otherCollider);
+            if (!collider.getContacts().contains(otherCollider.getId())) continue;
+            
+            if (!isStatic()) {
+                getPosition().add(collider.getPosition().getX() - childX, collider.getPosition().getY() - childY);
+                placeColliders();
+            }
+            otherCollider.getContacts().remove(collider.getId());
+            otherCollider.getContacts().add(getId());
+            getContacts().add(otherCollider.getId());
         }
     }
-}
\ No newline at end of file
+}
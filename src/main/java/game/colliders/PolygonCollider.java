@@ -11,6 +11,21 @@ public class PolygonCollider extends Collider {
     private float width = 0;
     private float height = 0;
     
+    /* Shape cache, refreshed when the angle changes */
+    // Unit normals of the edges, edge i goes from vertex i to vertex i + 1
+    private final float[] normalsX;
+    private final float[] normalsY;
+    private float localMinX = 0;
+    private float localMinY = 0;
+    private float localMaxX = 0;
+    private float localMaxY = 0;
+    
+    /* World space cache, refreshed when the position or angle changes */
+    private final float[] worldVerticesX;
+    private final float[] worldVerticesY;
+    private float cachedX = Float.NaN;
+    private float cachedY = Float.NaN;
+    
     public PolygonCollider(Vector[] vertices) {
         this.vertices = vertices;
         if (vertices.length == 0) {
@@ -22,7 +37,11 @@ public class PolygonCollider extends Collider {
             vertex.subtract(bounds.getX(), bounds.getY());
         }
         
-        this.updateSize();
+        this.normalsX = new float[vertices.length];
+        this.normalsY = new float[vertices.length];
+        this.worldVerticesX = new float[vertices.length];
+        this.worldVerticesY = new float[vertices.length];
+        this.updateShape();
     }
     
     public Vector[] getVertices() {
@@ -54,13 +73,92 @@ public class PolygonCollider extends Collider {
         );
     }
     
-    private void updateSize() {
-        Bounds bounds = this.getVerticesBounds();
-        this.width = bounds.getWidth();
-        this.height = bounds.getHeight();
+    private void updateShape() {
+        int vertexCount = vertices.length;
+        localMinX = Float.MAX_VALUE;
+        localMinY = Float.MAX_VALUE;
+        localMaxX = -Float.MAX_VALUE;
+        localMaxY = -Float.MAX_VALUE;
+        for (int i = 0; i < vertexCount; i++) {
+            Vector pointA = vertices[i];
+            Vector pointB = vertices[(i + 1) % vertexCount];
+            float edgeX = pointB.getX() - pointA.getX();
+            float edgeY = pointB.getY() - pointA.getY();
+            float edgeLength = (float) Math.sqrt(edgeX * edgeX + edgeY * edgeY);
+            normalsX[i] = -edgeY / edgeLength;
+            normalsY[i] = edgeX / edgeLength;
+            
+            localMinX = Math.min(localMinX, pointA.getX());
+            localMinY = Math.min(localMinY, pointA.getY());
+            localMaxX = Math.max(localMaxX, pointA.getX());
+            localMaxY = Math.max(localMaxY, pointA.getY());
+        }
+        
+        this.width = localMaxX - localMinX;
+        this.height = localMaxY - localMinY;
+        
+        // Force the world space cache to refresh
+        cachedX = Float.NaN;
+    }
+    
+    private void updateWorldVertices() {
+        float x = getPosition().getX();
+        float y = getPosition().getY();
+        if (x == cachedX && y == cachedY) return;
+        
+        for (int i = 0; i < vertices.length; i++) {
+            worldVerticesX[i] = vertices[i].getX() + x;
+            worldVerticesY[i] = vertices[i].getY() + y;
+        }
+        
+        cachedX = x;
+        cachedY = y;
+    }
+    
+    /**
+     * Get the X coordinates of the vertices in world space.
+     * The array is reused, so it's only valid until the collider moves.
+     */
+    float[] getWorldVerticesX() {
+        updateWorldVertices();
+        return worldVerticesX;
+    }
+    
+    /**
+     * Get the Y coordinates of the vertices in world space.
+     * The array is reused, so it's only valid until the collider moves.
+     */
+    float[] getWorldVerticesY() {
+        updateWorldVertices();
+        return worldVerticesY;
+    }
+    
+    float[] getNormalsX() {
+        return normalsX;
+    }
+    
+    float[] getNormalsY() {
+        return normalsY;
+    }
+    
+    public float getMinX() {
+        return getPosition().getX() + localMinX;
+    }
+    
+    public float getMinY() {
+        return getPosition().getY() + localMinY;
+    }
+    
+    public float getMaxX() {
+        return getPosition().getX() + localMaxX;
+    }
+    
+    public float getMaxY() {
+        return getPosition().getY() + localMaxY;
     }
     
     public void setAngle(float angleInRadians) {
+        if (angleInRadians == this.angle) return;
         float deltaAngle = angleInRadians - this.angle;
         float cos = (float) Math.cos(deltaAngle);
         float sin = (float) Math.sin(deltaAngle);
@@ -72,7 +170,7 @@ public class PolygonCollider extends Collider {
         }
         
         this.angle = angleInRadians;
-        this.updateSize();
+        this.updateShape();
     }
     
     public float getAngle() {
@@ -120,9 +218,7 @@ public class PolygonCollider extends Collider {
                 this
             );
         } else if (otherCollider instanceof GroupedCollider groupedCollider) {
-            for (Collider collider : groupedCollider.getColliders()) {
-                resolveCollision(collider);
-            }
+            groupedCollider.resolveCollision(this);
         }
     }
     
@@ -9,7 +9,6 @@ import game.projectiles.Fireball;
 import game.sprites.BloodSprite;
 import game.sprites.DevilSprite;
 import game.sprites.SpiritSprite;
-import game.utils.Bounds;
 import game.utils.Common;
 import game.utils.IntervalMap;
 import game.utils.Vector;
@@ -144,12 +143,9 @@ public class Devil extends Seeker {
         if (
             intervals.isIntervalOverFor(Interval.SHOOT_FIREBALL) && isReadyToShootPlayer()
         ) {
-            Bounds playerHitBox = Game.world.getPlayer().getHitBox();
-            float targetX = playerHitBox.getX() + playerHitBox.getWidth() / 2;
-            float targetY = playerHitBox.getY() + playerHitBox.getHeight() / 2;
+            // The hitboxes are only fitted after the entities update
             float angleToPlayer = position.getAngle(
-                targetX,
-                targetY
+                Game.world.getPlayer().getCollider().getPosition()
             );
             Fireball fireball = Game.world.spawnFireball(
                 collider.getPosition(),
@@ -241,14 +237,12 @@ public class Devil extends Seeker {
     }
     
     @Override
-    public Bounds getHitBox() {
-        float width = sprite.getWidth() * 0.55f;
-        float height = sprite.getHeight() * 0.7f;
-        return new Bounds(
-            position.getX() - width / 2,
-            position.getY() - height / 2,
-            width,
-            height
-        );
+    protected float getHitBoxWidth() {
+        return sprite.getWidth() * 0.55f;
+    }
+    
+    @Override
+    protected float getHitBoxHeight() {
+        return sprite.getHeight() * 0.7f;
     }
 }
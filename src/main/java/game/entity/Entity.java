@@ -4,6 +4,7 @@ import game.Drawable;
 import game.World;
 import game.colliders.Collider;
 import game.utils.Bounds;
+import game.utils.Broadphase;
 import game.utils.IntervalMap;
 import javafx.beans.property.FloatProperty;
 import javafx.beans.property.SimpleFloatProperty;
@@ -11,12 +12,14 @@ import javafx.scene.canvas.GraphicsContext;
 import game.utils.Common;
 import game.utils.Vector;
 
-public abstract class Entity implements Drawable {
+public abstract class Entity implements Drawable, Broadphase.BoundedObject {
     protected final int id = Common.generateId();
     protected final Vector position = new Vector();
     private final FloatProperty currentHealth = new SimpleFloatProperty(100);
     private final FloatProperty maxHealth = new SimpleFloatProperty(Float.MAX_VALUE);
     protected int zIndex = 0;
+    // Kept once per tick, so it can be read without allocating
+    private final Bounds hitBox = new Bounds();
     
     // to be overridden
     @Override
@@ -103,12 +106,46 @@ public abstract class Entity implements Drawable {
     
     public abstract Collider getCollider();
     
+    /**
+     * Fit the hitbox around the current position. This is done once per
+     * tick by the world, before the projectiles look for hits.
+     */
+    public void updateHitBox() {
+        float width = getHitBoxWidth();
+        float height = getHitBoxHeight();
+        hitBox.setX(position.getX() - width / 2);
+        hitBox.setY(position.getY() - height / 2);
+        hitBox.setWidth(width);
+        hitBox.setHeight(height);
+    }
+    
+    // to be overridden
+    protected float getHitBoxWidth() {
+        return 50;
+    }
+    
+    // to be overridden
+    protected float getHitBoxHeight() {
+        return 50;
+    }
+    
+    /**
+     * Get the hitbox as of the last `updateHitBox`.
+     */
     public Bounds getHitBox() {
-        return new Bounds(
-            position.getX() - 25,
-            position.getY() - 25,
-            50,
-            50
-        );
+        return hitBox;
+    }
+    
+    /**
+     * Width of the hitbox, which is centered at the position.
+     */
+    @Override
+    public float getWidth() {
+        return hitBox.getWidth();
+    }
+    
+    @Override
+    public float getHeight() {
+        return hitBox.getHeight();
     }
 }
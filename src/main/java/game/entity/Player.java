@@ -6,7 +6,6 @@ import game.Progress;
 import game.colliders.CircleCollider;
 import game.colliders.Collider;
 import game.sprites.BloodSprite;
-import game.utils.Bounds;
 import game.utils.Common;
 import game.weapons.Gun;
 import game.weapons.Weapon;
@@ -457,14 +456,12 @@ public class Player extends Entity {
     }
     
     @Override
-    public Bounds getHitBox() {
-        float width = sprite.getWidth() * 0.55f;
-        float height = sprite.getHeight() * 0.7f;
-        return new Bounds(
-            position.getX() - width / 2,
-            position.getY() - height / 2,
-            width,
-            height
-        );
+    protected float getHitBoxWidth() {
+        return sprite.getWidth() * 0.55f;
+    }
+    
+    @Override
+    protected float getHitBoxHeight() {
+        return sprite.getHeight() * 0.7f;
     }
 }
@@ -1,10 +1,6 @@
 package game.entity;
 
 import game.Game;
-import game.colliders.Collider;
-import game.colliders.CollisionResolvers;
-import game.map.Layer;
-import game.map.Material;
 import game.utils.PathFinder;
 import game.utils.IntervalMap;
 import game.utils.Vector;
@@ -17,6 +13,7 @@ public abstract class Seeker extends Entity {
     private ArrayList<Vector> pathToSeek = new ArrayList<>();
     private float angleToSeek = 0;
     private final Vector positionToSeek = new Vector();
+    private final Vector flowFieldStep = new Vector();
     private boolean isPathClear = false;
     private final IntervalMap intervalMap = new IntervalMap();
     private boolean isFacingOnLeftSide = false;
@@ -42,24 +39,25 @@ public abstract class Seeker extends Entity {
      * has no obstacles.
      */
     private boolean _isPathClear() {
-        for (Layer layer : Game.world.getMap().getLayers()) {
-            for (Material material : layer.getMaterials()) {
-                Collider obstacle = material.getCollider();
-                if (obstacle == null) continue;
-                
-                Vector intersectionPoint = CollisionResolvers.getLineToColliderIntersectionPoint(
-                    position,
-                    positionToSeek,
-                    obstacle
-                );
-                
-                if (intersectionPoint != null) {
-                    return false;
-                }
-            }
-        }
+        // Static obstacles are in the occupancy grid
+        boolean isBlocked = Game.world.getMap().getOccupancyGrid().isLineBlocked(
+            position.getX(),
+            position.getY(),
+            positionToSeek.getX(),
+            positionToSeek.getY()
+        );
+        if (isBlocked) return false;
         
-        return true;
+        // Map colliders that can move aren't in the grid
+        float fraction = Game.world.getColliderWorld().sweepDynamicColliders(
+            position.getX(),
+            position.getY(),
+            positionToSeek.getX(),
+            positionToSeek.getY(),
+            0,
+            Game.CollisionCategory.MAP.get()
+        );
+        return fraction < 0;
     }
     
     protected boolean isPathClear() {
@@ -87,11 +85,20 @@ public abstract class Seeker extends Entity {
             angleToSeek = position.getAngle(positionToSeek);
         }
         
+        // Use flow field if path has obstacles
+        PathFinder pathFinder = Game.world.getPathFinder();
+        boolean isUsingFlowField = pathFinder.getMode() == PathFinder.Mode.FLOW_FIELD;
+        if (!isPathClear && isUsingFlowField) {
+            if (pathFinder.getFlowFieldStep(position, flowFieldStep)) {
+                angleToSeek = position.getAngle(flowFieldStep);
+            }
+        }
+        
         // Use pathfinder if path has obstacles
-        if (!isPathClear && pathToSeek.size() > 1) {
-            int[] currentGridPosition = Game.world.getPathFinder().convertWorldPositionToGridPosition(position);
+        if (!isPathClear && !isUsingFlowField && pathToSeek.size() > 1) {
+            int[] currentGridPosition = pathFinder.convertWorldPositionToGridPosition(position);
             Vector step = pathToSeek.get(Math.max(0, pathToSeek.size() - 2));
-            int[] targetGridPosition = Game.world.getPathFinder().convertWorldPositionToGridPosition(step);
+            int[] targetGridPosition = pathFinder.convertWorldPositionToGridPosition(step);
             
             if (
                 currentGridPosition[0] == targetGridPosition[0] && currentGridPosition[1] == targetGridPosition[1]
@@ -108,17 +115,9 @@ public abstract class Seeker extends Entity {
     
     private void maybeUpdateIfPathIsClear() {
         if (intervalMap.isIntervalOverFor(Interval.UPDATE_IS_PATH_CLEAR)) {
-            Task<Void> task = new Task<>() {
-                @Override
-                protected Void call() {
-                    Seeker.this.isPathClear = Seeker.this._isPathClear();
-                    return null;
-                }
-            };
-            
-            task.setOnFailed(System.out::println);
-            Async.queue1.submit(task);
-            
+            // The collider world can only be read on this thread, and a
+            // line check is cheap enough not to need a task
+            isPathClear = _isPathClear();
             intervalMap.resetIntervalFor(Interval.UPDATE_IS_PATH_CLEAR);
         }
     }
@@ -126,6 +125,9 @@ public abstract class Seeker extends Entity {
     private void maybeUpdatePathToSeek() {
         if (isPathClear) return;
         
+        // The flow field is shared, so there's nothing to request
+        if (Game.world.getPathFinder().getMode() == PathFinder.Mode.FLOW_FIELD) return;
+        
         if (intervalMap.isIntervalOverFor(Interval.UPDATE_PATH)) {
             Task<Void> task = new Task<>() {
                 @Override
@@ -140,7 +142,7 @@ public abstract class Seeker extends Entity {
             };
             
             task.setOnFailed(System.out::println);
-            Async.queue1.submit(task);
+            Async.pathRequests.submit(task);
             
             intervalMap.resetIntervalFor(Interval.UPDATE_PATH);
         }
@@ -4,6 +4,7 @@ import game.Config;
 import game.Game;
 import game.Progress;
 import game.colliders.CircleCollider;
+import game.colliders.Collider;
 import game.sprites.AcidSprite;
 import game.sprites.BloodGreenSprite;
 import game.utils.*;
@@ -44,6 +45,20 @@ public class Zombie extends Seeker {
         );
         collider.setRadius(5);
         collider.setMass(1);
+        collider.setContactListener(
+            Game.CollisionCategory.PLAYER.get(),
+            new Collider.ContactListener() {
+                @Override
+                public void onContactBegin(Collider other) {
+                    bitePlayer();
+                }
+                
+                @Override
+                public void onContactPersist(Collider other) {
+                    bitePlayer();
+                }
+            }
+        );
         Game.world.getColliderWorld().addCollider(collider);
         
         // Initialize intervals
@@ -113,15 +128,10 @@ public class Zombie extends Seeker {
         generalIntervals.resetIntervalFor(Interval.EMIT_SOUND_GROAN);
     }
     
-    private void checkPlayerCollision() {
-        Player player = Game.world.getPlayer();
-        boolean isCollidingWithPlayer = collider.isCollidingWith(
-            player.getCollider()
-        );
-        if (intervals.isIntervalOverFor(Interval.BITE) && isCollidingWithPlayer) {
-            player.addHealth(-getDamage());
-            intervals.resetIntervalFor(Interval.BITE);
-        }
+    private void bitePlayer() {
+        if (!intervals.isIntervalOverFor(Interval.BITE)) return;
+        Game.world.getPlayer().addHealth(-getDamage());
+        intervals.resetIntervalFor(Interval.BITE);
     }
     
     private void handleSprite() {
@@ -171,7 +181,6 @@ public class Zombie extends Seeker {
     @Override
     public void fixedUpdate(float deltaTime) {
         this.handleMovements();
-        this.checkPlayerCollision();
         this.sprite.nextFrame();
     }
     
@@ -235,14 +244,12 @@ public class Zombie extends Seeker {
     }
     
     @Override
-    public Bounds getHitBox() {
-        float width = sprite.getWidth() * 0.55f;
-        float height = sprite.getHeight() * 0.7f;
-        return new Bounds(
-            position.getX() - width / 2,
-            position.getY() - height / 2,
-            width,
-            height
-        );
+    protected float getHitBoxWidth() {
+        return sprite.getWidth() * 0.55f;
+    }
+    
+    @Override
+    protected float getHitBoxHeight() {
+        return sprite.getHeight() * 0.7f;
     }
 }
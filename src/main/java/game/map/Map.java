@@ -1,16 +1,19 @@
 package game.map;
 
 import game.colliders.Collider;
+import game.colliders.ColliderMerger;
 import game.colliders.ColliderWorld;
-import game.colliders.GroupedCollider;
-import game.utils.Bounds;
-import game.utils.Quadtree;
 
 import java.util.ArrayList;
 
 public abstract class Map {
+    // Resolution of the occupancy grid
+    private static final int OCCUPANCY_CELLS_PER_TILE = 8;
     protected final ArrayList<Layer> layers = new ArrayList<>();
     protected final int tileSize;
+    // Colliders of the materials, with the static ones merged
+    private final ArrayList<Collider> colliders = new ArrayList<>();
+    private OccupancyGrid occupancyGrid = null;
     private int totalWidth = 0;
     private int totalHeight = 0;
     
@@ -59,13 +62,63 @@ public abstract class Map {
         }
     }
     
+    /**
+     * Add the colliders of the materials to the world. Static ones are
+     * merged into larger boxes first, a wall is then one collider instead
+     * of one per tile.
+     */
     public void addCollidersToWorld(ColliderWorld colliderWorld) {
+        ArrayList<Collider> materialColliders = new ArrayList<>();
         for (Layer layer : layers) {
             for (Material material : layer.getMaterials()) {
                 Collider collider = material.getCollider();
                 if (collider == null) continue;
-                colliderWorld.addCollider(collider);
+                material.rotateCollider();
+                materialColliders.add(collider);
             }
         }
+        
+        colliders.clear();
+        colliders.addAll(ColliderMerger.merge(materialColliders));
+        for (Collider collider : colliders) {
+            colliderWorld.addCollider(collider);
+        }
+        buildOccupancyGrid();
+    }
+    
+    /**
+     * Rasterize the static colliders. Dynamic ones can move, so they aren't
+     * part of it.
+     */
+    private void buildOccupancyGrid() {
+        occupancyGrid = new OccupancyGrid(
+            0,
+            0,
+            totalWidth,
+            totalHeight,
+            (float) tileSize / OCCUPANCY_CELLS_PER_TILE
+        );
+        for (Collider collider : colliders) {
+            if (!collider.isStatic()) continue;
+            // Grouped colliders only place their parts on their first tick
+            collider.settle();
+            occupancyGrid.fill(collider);
+        }
+    }
+    
+    /**
+     * Get the colliders of the map as they are in the world, available
+     * once they are added to it.
+     */
+    public ArrayList<Collider> getColliders() {
+        return colliders;
+    }
+    
+    /**
+     * Get the static geometry of the map, available once its colliders are
+     * added to the world.
+     */
+    public OccupancyGrid getOccupancyGrid() {
+        return occupancyGrid;
     }
 }
@@ -246,9 +246,16 @@ public class Material implements Drawable {
                 position.set(collider.getPosition());
             }
             
-            if (collider instanceof PolygonCollider polygonCollider) {
-                polygonCollider.setAngle((float) Math.toRadians(rotation));
-            }
+            rotateCollider();
+        }
+    }
+    
+    /**
+     * Turn the collider to the rotation of the material.
+     */
+    public void rotateCollider() {
+        if (collider instanceof PolygonCollider polygonCollider) {
+            polygonCollider.setAngle((float) Math.toRadians(rotation));
         }
     }
     
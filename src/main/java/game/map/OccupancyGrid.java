@@ -0,0 +1,176 @@
+package game.map;
+
+import game.colliders.Collider;
+import game.colliders.CollisionResolvers;
+
+/**
+ * A grid of bits over the map, set where a static collider overlaps the
+ * cell. Cells are smaller than tiles, so the shapes are kept reasonably
+ * close while every test is a few bit lookups. It is only written while
+ * the map loads, so it can be read from any thread.
+ */
+public class OccupancyGrid {
+    private final float originX;
+    private final float originY;
+    private final float cellSize;
+    private final int columns;
+    private final int rows;
+    // Row major, 64 cells per word
+    private final long[] cells;
+    
+    public OccupancyGrid(float x, float y, float width, float height, float cellSize) {
+        this.originX = x;
+        this.originY = y;
+        this.cellSize = cellSize;
+        this.columns = Math.max(1, (int) Math.ceil(width / cellSize));
+        this.rows = Math.max(1, (int) Math.ceil(height / cellSize));
+        this.cells = new long[(columns * rows + 63) >> 6];
+    }
+    
+    public float getCellSize() {
+        return cellSize;
+    }
+    
+    public int getColumns() {
+        return columns;
+    }
+    
+    public int getRows() {
+        return rows;
+    }
+    
+    /**
+     * Set the cells that the shape of the collider overlaps.
+     */
+    public void fill(Collider collider) {
+        float halfWidth = collider.getWidth() / 2;
+        float halfHeight = collider.getHeight() / 2;
+        int startColumn = Math.max(0, getColumn(collider.getPosition().getX() - halfWidth));
+        int startRow = Math.max(0, getRow(collider.getPosition().getY() - halfHeight));
+        int endColumn = Math.min(columns - 1, getColumn(collider.getPosition().getX() + halfWidth));
+        int endRow = Math.min(rows - 1, getRow(collider.getPosition().getY() + halfHeight));
+        for (int row = startRow; row <= endRow; row++) {
+            for (int column = startColumn; column <= endColumn; column++) {
+                boolean isOverlapping = CollisionResolvers.testBoundsToCollider(
+                    originX + column * cellSize,
+                    originY + row * cellSize,
+                    cellSize,
+                    cellSize,
+                    collider
+                );
+                if (!isOverlapping) continue;
+                int cell = row * columns + column;
+                cells[cell >> 6] |= 1L << cell;
+            }
+        }
+    }
+    
+    private int getColumn(float x) {
+        return (int) Math.floor((x - originX) / cellSize);
+    }
+    
+    private int getRow(float y) {
+        return (int) Math.floor((y - originY) / cellSize);
+    }
+    
+    /**
+     * Whether the cell is set. Cells outside the grid never are.
+     */
+    public boolean isOccupied(int column, int row) {
+        if (column < 0 || row < 0 || column >= columns || row >= rows) return false;
+        int cell = row * columns + column;
+        return (cells[cell >> 6] & (1L << cell)) != 0;
+    }
+    
+    public boolean isPointBlocked(float x, float y) {
+        return isOccupied(getColumn(x), getRow(y));
+    }
+    
+    /**
+     * Whether any set cell overlaps the bounds.
+     */
+    public boolean isAreaBlocked(float x, float y, float width, float height) {
+        int startColumn = Math.max(0, getColumn(x));
+        int startRow = Math.max(0, getRow(y));
+        int endColumn = Math.min(columns - 1, getColumn(x + width));
+        int endRow = Math.min(rows - 1, getRow(y + height));
+        for (int row = startRow; row <= endRow; row++) {
+            for (int column = startColumn; column <= endColumn; column++) {
+                if (isOccupied(column, row)) return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Whether any set cell overlaps the circle.
+     */
+    public boolean isCircleBlocked(float centerX, float centerY, float radius) {
+        int startColumn = Math.max(0, getColumn(centerX - radius));
+        int startRow = Math.max(0, getRow(centerY - radius));
+        int endColumn = Math.min(columns - 1, getColumn(centerX + radius));
+        int endRow = Math.min(rows - 1, getRow(centerY + radius));
+        for (int row = startRow; row <= endRow; row++) {
+            for (int column = startColumn; column <= endColumn; column++) {
+                if (!isOccupied(column, row)) continue;
+                
+                // Nearest point of the cell to the center
+                float cellX = originX + column * cellSize;
+                float cellY = originY + row * cellSize;
+                float distanceX = Math.max(cellX, Math.min(centerX, cellX + cellSize)) - centerX;
+                float distanceY = Math.max(cellY, Math.min(centerY, cellY + cellSize)) - centerY;
+                if (distanceX * distanceX + distanceY * distanceY <= radius * radius) return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Walk the cells along the line from A to B (DDA), stopping at the
+     * first set one.
+     *
+     * @returns {number} How far along the line the first set cell is
+     * entered, as a fraction of the line, or -1 if there is none.
+     */
+    public float getLineHitFraction(float pointAX, float pointAY, float pointBX, float pointBY) {
+        // Work in cell units
+        float x = (pointAX - originX) / cellSize;
+        float y = (pointAY - originY) / cellSize;
+        float directionX = (pointBX - pointAX) / cellSize;
+        float directionY = (pointBY - pointAY) / cellSize;
+        int column = (int) Math.floor(x);
+        int row = (int) Math.floor(y);
+        int stepX = directionX > 0 ? 1 : directionX < 0 ? -1 : 0;
+        int stepY = directionY > 0 ? 1 : directionY < 0 ? -1 : 0;
+        
+        // Fraction of the line to cross one cell, and to reach the next one
+        float deltaX = stepX == 0 ? Float.MAX_VALUE : Math.abs(1 / directionX);
+        float deltaY = stepY == 0 ? Float.MAX_VALUE : Math.abs(1 / directionY);
+        float nextX = stepX > 0 ? (column + 1 - x) * deltaX : stepX < 0 ? (x - column) * deltaX : Float.MAX_VALUE;
+        float nextY = stepY > 0 ? (row + 1 - y) * deltaY : stepY < 0 ? (y - row) * deltaY : Float.MAX_VALUE;
+        
+        float fraction = 0;
+        while (fraction <= 1) {
+            if (isOccupied(column, row)) return fraction;
+            
+            // Nothing left to hit once the line leaves the grid
+            if ((column < 0 && stepX <= 0) || (column >= columns && stepX >= 0)) return -1;
+            if ((row < 0 && stepY <= 0) || (row >= rows && stepY >= 0)) return -1;
+            
+            if (nextX < nextY) {
+                fraction = nextX;
+                nextX += deltaX;
+                column += stepX;
+            } else {
+                fraction = nextY;
+                nextY += deltaY;
+                row += stepY;
+            }
+        }
+        return -1;
+    }
+    
+    public boolean isLineBlocked(float pointAX, float pointAY, float pointBX, float pointBY) {
+        return getLineHitFraction(pointAX, pointAY, pointBX, pointBY) >= 0;
+    }
+}
@@ -3,10 +3,11 @@ package game.projectiles;
 import game.Game;
 import game.World;
 import game.colliders.CircleCollider;
-import game.colliders.Collider;
+import game.colliders.CollisionResolvers;
 import game.entity.Entity;
-import game.map.Layer;
-import game.map.Material;
+import game.utils.BoundingBox;
+import game.utils.Bounds;
+import game.utils.Broadphase;
 import game.utils.Vector;
 import javafx.beans.property.FloatProperty;
 import javafx.beans.property.SimpleFloatProperty;
@@ -14,6 +15,8 @@ import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.image.Image;
 import utils.Common;
 
+import java.util.Arrays;
+
 public class Bullet extends Projectile {
     private final float knockBackForce = 3000;
     private final FloatProperty speed = new SimpleFloatProperty(10000);
@@ -21,6 +24,14 @@ public class Bullet extends Projectile {
     private final FloatProperty penetration = new SimpleFloatProperty(1);
     private final CircleCollider collider = new CircleCollider();
     private final Image image = Common.loadImage("/weapons/bullet-2.png");
+    // Entities hit in the current tick, sorted by how far along the motion
+    private Entity[] hitEntities = new Entity[4];
+    private float[] hitFractions = new float[4];
+    private int hitCount = 0;
+    private float maxHitFraction = 1;
+    private final Broadphase.ItemVisitor<Entity> hitCollector = this::collectHit;
+    // Box around the last motion, to find the entities it may hit
+    private final BoundingBox sweptBounds = new BoundingBox();
     
     public Bullet(World world, Vector initialPosition, float angle) {
         super(world, initialPosition, angle);
@@ -43,6 +54,8 @@ public class Bullet extends Projectile {
         collider.setRadius(2);
         collider.setFriction(0.9f);
         collider.setMass(1);
+        // Hits are found by sweeping the whole motion, so it needn't be capped
+        collider.setVelocityLimit(Float.MAX_VALUE);
     }
     
     @Override
@@ -61,8 +74,14 @@ public class Bullet extends Projectile {
     public void fixedUpdate(float deltaTime) {
         handleMovement();
         
-        handleEntityCollision();
-        handleObstacleCollision();
+        // Everything hit before the first obstacle along the motion counts
+        float obstacleHit = findObstacleHit();
+        handleEntityCollision(obstacleHit < 0 ? 1 : obstacleHit);
+        if (obstacleHit >= 0) {
+            dispose();
+            return;
+        }
+        
         handleDisposal();
     }
     
@@ -85,11 +104,42 @@ public class Bullet extends Projectile {
         }
     }
     
-    private void handleEntityCollision() {
-        for (Entity entity : world.getEntities(false)) {
-            if (isEntityMarked(entity)) continue;
-            boolean isEntityHit = collider.isCollidingWith(entity.getHitBox());
-            if (!isEntityHit) continue;
+    /**
+     * Sweep the bullet over its last motion against a hitbox.
+     *
+     * @returns {number} How far along the motion it hits, or -1.
+     */
+    private float sweep(Bounds hitBox) {
+        return CollisionResolvers.sweepCircleToBounds(
+            collider.getOldPosition().getX(),
+            collider.getOldPosition().getY(),
+            position.getX(),
+            position.getY(),
+            collider.getRadius(),
+            hitBox.getX(),
+            hitBox.getY(),
+            hitBox.getWidth(),
+            hitBox.getHeight()
+        );
+    }
+    
+    private void handleEntityCollision(float maxFraction) {
+        // Collect the entities hit along the motion, nearest first
+        hitCount = 0;
+        maxHitFraction = maxFraction;
+        float radius = collider.getRadius();
+        sweptBounds.set(
+            Math.min(collider.getOldPosition().getX(), position.getX()) - radius,
+            Math.min(collider.getOldPosition().getY(), position.getY()) - radius,
+            Math.max(collider.getOldPosition().getX(), position.getX()) + radius,
+            Math.max(collider.getOldPosition().getY(), position.getY()) + radius
+        );
+        world.getEntityIndex().query(sweptBounds, hitCollector);
+        
+        for (int i = 0; i < hitCount; i++) {
+            Entity entity = hitEntities[i];
+            hitEntities[i] = null;
+            if (getPenetration() <= 0) continue;
             
             float penetrationPercentage = getPenetration() >= 1 ? 1 : getPenetration();
             float computedDamage = getDamage() * penetrationPercentage;
@@ -107,18 +157,54 @@ public class Bullet extends Projectile {
         }
     }
     
-    private void handleObstacleCollision() {
-        for (Layer layer : world.getMap().getLayers()) {
-            for (Material material : layer.getMaterials()) {
-                Collider obstacle = material.getCollider();
-                if (obstacle == null) continue;
-                boolean isObstacleHit = obstacle.isCollidingWith(collider);
-                if (isObstacleHit) {
-                    dispose();
-                    return;
-                }
-            }
+    private void collectHit(Entity entity) {
+        if (isEntityMarked(entity)) return;
+        float fraction = sweep(entity.getHitBox());
+        if (fraction < 0 || fraction > maxHitFraction) return;
+        
+        if (hitCount == hitEntities.length) {
+            hitEntities = Arrays.copyOf(hitEntities, hitCount * 2);
+            hitFractions = Arrays.copyOf(hitFractions, hitCount * 2);
+        }
+        int i = hitCount++;
+        while (i > 0 && hitFractions[i - 1] > fraction) {
+            hitEntities[i] = hitEntities[i - 1];
+            hitFractions[i] = hitFractions[i - 1];
+            i--;
         }
+        hitEntities[i] = entity;
+        hitFractions[i] = fraction;
+    }
+    
+    /**
+     * Find the first obstacle along the last motion of the bullet.
+     *
+     * @returns {number} How far along the motion it is hit, or -1.
+     */
+    private float findObstacleHit() {
+        // Static obstacles are in the occupancy grid, the bullet is
+        // smaller than its cells so it is walked as a line
+        float min = world.getMap().getOccupancyGrid().getLineHitFraction(
+            collider.getOldPosition().getX(),
+            collider.getOldPosition().getY(),
+            position.getX(),
+            position.getY()
+        );
+        if (min < 0) min = Float.MAX_VALUE;
+        
+        // Map colliders that can move aren't in the grid, the bullet is
+        // swept against them with its radius
+        float fraction = world.getColliderWorld().sweepDynamicColliders(
+            collider.getOldPosition().getX(),
+            collider.getOldPosition().getY(),
+            position.getX(),
+            position.getY(),
+            collider.getRadius(),
+            Game.CollisionCategory.MAP.get()
+        );
+        if (fraction >= 0 && fraction < min) min = fraction;
+        
+        return min == Float.MAX_VALUE ? -1 : min;
     }
     
     @Override
@@ -3,10 +3,8 @@ package game.projectiles;
 import game.Game;
 import game.World;
 import game.colliders.CircleCollider;
-import game.colliders.Collider;
 import game.entity.Player;
-import game.map.Layer;
-import game.map.Material;
+import game.map.OccupancyGrid;
 import game.sprites.FireballExplosionSprite;
 import game.sprites.FireballSprite;
 import game.utils.Vector;
@@ -115,17 +113,51 @@ public class Fireball extends Projectile {
     }
     
     private void handleObstacleCollision() {
-        for (Layer layer : world.getMap().getLayers()) {
-            for (Material material : layer.getMaterials()) {
-                Collider obstacle = material.getCollider();
-                if (obstacle == null) continue;
-                boolean isObstacleHit = obstacle.isCollidingWith(collider);
-                if (isObstacleHit) {
-                    dispose();
-                    return;
-                }
-            }
+        float obstacleHit = findObstacleHit();
+        if (obstacleHit < 0) return;
+        
+        // Explode where it hit, not past the obstacle
+        Vector oldPosition = collider.getOldPosition();
+        position.set(
+            oldPosition.getX() + (position.getX() - oldPosition.getX()) * obstacleHit,
+            oldPosition.getY() + (position.getY() - oldPosition.getY()) * obstacleHit
+        );
+        dispose();
+    }
+    
+    /**
+     * Find the first obstacle along the last motion of the fireball.
+     *
+     * @returns {number} How far along the motion it is hit, or -1.
+     */
+    private float findObstacleHit() {
+        // Static obstacles are in the occupancy grid, the fireball is
+        // smaller than its cells so it is walked as a line and only its
+        // end position is tested with its radius
+        OccupancyGrid occupancyGrid = world.getMap().getOccupancyGrid();
+        float min = occupancyGrid.getLineHitFraction(
+            collider.getOldPosition().getX(),
+            collider.getOldPosition().getY(),
+            position.getX(),
+            position.getY()
+        );
+        if (min < 0) {
+            min = occupancyGrid.isCircleBlocked(position.getX(), position.getY(), collider.getRadius()) ? 1 : Float.MAX_VALUE;
         }
+        
+        // Map colliders that can move aren't in the grid, the fireball is
+        // swept against them with its radius
+        float fraction = world.getColliderWorld().sweepDynamicColliders(
+            collider.getOldPosition().getX(),
+            collider.getOldPosition().getY(),
+            position.getX(),
+            position.getY(),
+            collider.getRadius(),
+            Game.CollisionCategory.MAP.get()
+        );
+        if (fraction >= 0 && fraction < min) min = fraction;
+        
+        return min == Float.MAX_VALUE ? -1 : min;
     }
     
     @Override
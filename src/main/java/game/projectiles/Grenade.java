@@ -5,14 +5,13 @@ import game.Game;
 import game.World;
 import game.colliders.CircleCollider;
 import game.colliders.Collider;
-import game.entity.Entity;
 import game.sprites.ExplosionSprite;
+import game.utils.BoundingBox;
 import game.utils.Vector;
 import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.image.Image;
 import utils.Common;
 
-import java.util.HashSet;
 
 public class Grenade extends Projectile {
     private final float knockBackForce = 15000;
@@ -22,7 +21,6 @@ public class Grenade extends Projectile {
     private float speed = 5000;
     private final CircleCollider collider = new CircleCollider();
     private final Image image = Common.loadImage("/weapons/grenade.png");
-    private final CircleCollider aoeCollider = new CircleCollider();
     
     public Grenade(World world, Vector initialPosition, float angle) {
         super(world, initialPosition, angle);
@@ -41,8 +39,6 @@ public class Grenade extends Projectile {
         collider.setRadius(3);
         collider.setFriction(0.05f);
         collider.setMass(1);
-        aoeCollider.setRadius(aoeDistance);
-        aoeCollider.setSkipResolutionMask(0xffff); // skip all collision
     }
     
     @Override
@@ -72,7 +68,6 @@ public class Grenade extends Projectile {
     
     private void handleMovement() {
         position.set(collider.getPosition());
-        aoeCollider.setPosition(collider.getPosition());
         
         collider.applyForce(
             (float) Math.cos(angle) * speed * collider.getMass(),
@@ -83,21 +78,8 @@ public class Grenade extends Projectile {
     }
     
     public void detonate() {
-        // Detect which colliders are affected by the explosion
-        HashSet<Integer> affectedColliders = new HashSet<>();
-        for (Collider _collider : aoeCollider.getAndUpdateNearCollidersImmediate(world.getHashgrid())) {
-            if (_collider.isStatic()) continue;
-            float distanceToBomb = _collider.getPosition().getDistanceFrom(position);
-            if (distanceToBomb > aoeDistance) continue;
-            affectedColliders.add(_collider.getId());
-            
-            // Add some knock back
-            float angleToBomb = position.getAngle(_collider.getPosition());
-            _collider.applyForce(
-                (float) (Math.cos(angleToBomb) * (aoeDistance - distanceToBomb)) * knockBackForce / aoeDistance,
-                (float) (Math.sin(angleToBomb) * (aoeDistance - distanceToBomb)) * knockBackForce / aoeDistance
-            );
-        }
+        // Knock back whatever can move around the explosion
+        world.getColliderWorld().queryCircle(position, aoeDistance, 0xffff, this::knockBack);
         
         ExplosionSprite explosionSprite = new ExplosionSprite();
         explosionSprite.getPosition().set(position);
@@ -106,21 +88,26 @@ public class Grenade extends Projectile {
         world.addOneTimeSpriteAnimation(explosionSprite);
         
         // Handle affected entities
-        for (Entity entity : world.getEntities(false)) {
-            if (isEntityMarked(entity)) continue;
-            boolean isEntityAffected = affectedColliders.contains(entity.getCollider().getId());
-            if (!isEntityAffected) continue;
+        BoundingBox aoeBounds = new BoundingBox(
+            position.getX() - aoeDistance,
+            position.getY() - aoeDistance,
+            position.getX() + aoeDistance,
+            position.getY() + aoeDistance
+        );
+        world.getEntityIndex().query(aoeBounds, entity -> {
+            if (isEntityMarked(entity)) return;
             
             // Damage should depend on how close they are on epicenter
             float distance = entity
                 .getCollider()
                 .getPosition()
                 .getDistanceFrom(position);
+            if (distance > aoeDistance) return;
             float distancePercentage = (aoeDistance - distance) / aoeDistance;
             float computedDamage = getDamage() * distancePercentage;
             entity.addHealth(-computedDamage);
             markEntity(entity);
-        }
+        });
         
         dispose();
         
@@ -131,11 +118,22 @@ public class Grenade extends Projectile {
         );
     }
     
+    private void knockBack(Collider _collider) {
+        if (_collider.isStatic()) return;
+        float distanceToBomb = _collider.getPosition().getDistanceFrom(position);
+        if (distanceToBomb > aoeDistance) return;
+        
+        float angleToBomb = position.getAngle(_collider.getPosition());
+        _collider.applyForce(
+            (float) (Math.cos(angleToBomb) * (aoeDistance - distanceToBomb)) * knockBackForce / aoeDistance,
+            (float) (Math.sin(angleToBomb) * (aoeDistance - distanceToBomb)) * knockBackForce / aoeDistance
+        );
+    }
+    
     @Override
     public void dispose() {
         world.getProjectiles().remove(this);
         world.getColliderWorld().removeCollider(collider);
-        world.getColliderWorld().removeCollider(aoeCollider);
     }
     
     @Override
@@ -145,7 +143,6 @@ public class Grenade extends Projectile {
     
     public void setAoeDistance(float aoeDistance) {
         this.aoeDistance = aoeDistance;
-        aoeCollider.setRadius(aoeDistance);
     }
     
     public void setDetonationTimeInMillis(int detonationTimeInMillis) {
@@ -163,8 +160,4 @@ public class Grenade extends Projectile {
     public CircleCollider getCollider() {
         return collider;
     }
-    
-    public CircleCollider getAoeCollider() {
-        return aoeCollider;
-    }
 }
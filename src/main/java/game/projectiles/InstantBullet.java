@@ -3,11 +3,9 @@ package game.projectiles;
 import game.Config;
 import game.Game;
 import game.World;
-import game.colliders.Collider;
 import game.colliders.CollisionResolvers;
 import game.entity.Entity;
-import game.map.Layer;
-import game.map.Material;
+import game.utils.Bounds;
 import game.utils.Vector;
 import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.paint.Paint;
@@ -21,6 +19,7 @@ public class InstantBullet extends Projectile {
     private float opacity = 1;
     private boolean shouldStopTravelling = false;
     private final Vector travelledPosition = new Vector();
+    private final Vector intersectionPoint = new Vector();
     
     public InstantBullet(World world, Vector initialPosition, float angle) {
         super(world, initialPosition, angle);
@@ -70,17 +69,33 @@ public class InstantBullet extends Projectile {
         // Get entities that intersects the trajectory of the bullet
         HashMap<Integer, Vector> entitiesIntersectionMap = new HashMap<>();
         ArrayList<Entity> entities = new ArrayList<>();
-        for (Entity entity : world.getEntities(false)) {
-            Vector intersection = CollisionResolvers.getLineToBoundsIntersectionPoint(
-                initialPosition,
-                travelledPosition,
-                entity.getHitBox()
-            );
-            boolean isEntityHit = intersection != null;
-            if (!isEntityHit) continue;
-            entities.add(entity);
-            entitiesIntersectionMap.put(entity.getId(), intersection);
-        }
+        world.getEntityIndex().queryRay(
+            initialPosition.getX(),
+            initialPosition.getY(),
+            travelledPosition.getX(),
+            travelledPosition.getY(),
+            0,
+            1,
+            (entity, maxFraction) -> {
+                Bounds hitBox = entity.getHitBox();
+                boolean isEntityHit = CollisionResolvers.getLineToBoundsIntersectionPoint(
+                    initialPosition.getX(),
+                    initialPosition.getY(),
+                    travelledPosition.getX(),
+                    travelledPosition.getY(),
+                    hitBox.getX(),
+                    hitBox.getY(),
+                    hitBox.getWidth(),
+                    hitBox.getHeight(),
+                    intersectionPoint
+                );
+                if (isEntityHit) {
+                    entities.add(entity);
+                    entitiesIntersectionMap.put(entity.getId(), intersectionPoint.clone());
+                }
+                return maxFraction;
+            }
+        );
         
         // Sort entities by distance (nearest to furthest)
         entities.sort((a, b) -> {
@@ -124,30 +139,44 @@ public class InstantBullet extends Projectile {
     }
     
     private void handleObstacleCollision() {
-        for (Layer layer : world.getMap().getLayers()) {
-            for (Material material : layer.getMaterials()) {
-                Collider obstacle = material.getCollider();
-                if (obstacle == null) continue;
-                
-                Vector intersectionPoint = CollisionResolvers.getLineToColliderIntersectionPoint(
-                    position,
-                    travelledPosition,
-                    obstacle
-                );
-                
-                if (intersectionPoint != null) {
-                    travelledPosition.set(intersectionPoint);
-                    shouldStopTravelling = true;
-                }
-                
-                boolean isInsideMapBounds = travelledPosition.getX() >= 0 &&
-                    travelledPosition.getX() <= world.getMap().getTotalWidth() &&
-                    travelledPosition.getY() >= 0 &&
-                    travelledPosition.getY() <= world.getMap().getTotalHeight();
-                if (!isInsideMapBounds) {
-                    shouldStopTravelling = true;
-                }
-            }
+        // Static obstacles are in the occupancy grid
+        float fraction = world.getMap().getOccupancyGrid().getLineHitFraction(
+            position.getX(),
+            position.getY(),
+            travelledPosition.getX(),
+            travelledPosition.getY()
+        );
+        if (fraction >= 0) {
+            travelledPosition.set(
+                position.getX() + (travelledPosition.getX() - position.getX()) * fraction,
+                position.getY() + (travelledPosition.getY() - position.getY()) * fraction
+            );
+            shouldStopTravelling = true;
+        }
+        
+        // Map colliders that can move aren't in the grid
+        float dynamicFraction = world.getColliderWorld().sweepDynamicColliders(
+            position.getX(),
+            position.getY(),
+            travelledPosition.getX(),
+            travelledPosition.getY(),
+            0,
+            Game.CollisionCategory.MAP.get()
+        );
+        if (dynamicFraction >= 0) {
+            travelledPosition.set(
+                position.getX() + (travelledPosition.getX() - position.getX()) * dynamicFraction,
+                position.getY() + (travelledPosition.getY() - position.getY()) * dynamicFraction
+            );
+            shouldStopTravelling = true;
+        }
+        
+        boolean isInsideMapBounds = travelledPosition.getX() >= 0 &&
+            travelledPosition.getX() <= world.getMap().getTotalWidth() &&
+            travelledPosition.getY() >= 0 &&
+            travelledPosition.getY() <= world.getMap().getTotalHeight();
+        if (!isInsideMapBounds) {
+            shouldStopTravelling = true;
         }
     }
     
@@ -0,0 +1,340 @@
+package game.projectiles;
+
+import game.Game;
+import game.World;
+import game.colliders.Collider;
+import game.colliders.CollisionResolvers;
+import game.entity.Entity;
+import game.utils.BoundingBox;
+import game.utils.Bounds;
+import game.utils.Broadphase;
+import game.utils.Vector;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.Image;
+import utils.Common;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * All the pellets of one shotgun blast. Pellets move like bullets, but
+ * they are kept in arrays instead of having a collider each, and the
+ * entities near the whole blast are looked up once per tick. Each pellet
+ * still has its own penetration, and hits an entity at most once.
+ */
+public class PelletCluster extends Projectile {
+    private static final float RADIUS = 2;
+    private static final float FRICTION = 0.9f;
+    private final float knockBackForce = 3000;
+    private float speed = 10000;
+    private float maxDistance = 200;
+    private float penetration = 1;
+    private final Image image = Common.loadImage("/weapons/bullet-2.png");
+    
+    /* Pellets, the ones from `liveCount` onwards are gone */
+    private final int pelletCount;
+    private final float[] pelletAngles;
+    private final float[] pelletX;
+    private final float[] pelletY;
+    private final float[] pelletOldX;
+    private final float[] pelletOldY;
+    private final float[] pelletPenetrations;
+    private int liveCount;
+    
+    // Ids of the entities each pellet has hit, `maxHitsPerPellet` per pellet
+    private int[] hitIds = new int[0];
+    private int[] hitIdCounts;
+    private int maxHitsPerPellet = 0;
+    
+    /* Scratch state of a tick */
+    private final BoundingBox sweptBounds = new BoundingBox();
+    private final ArrayList<Entity> nearEntities = new ArrayList<>();
+    private final Broadphase.ItemVisitor<Entity> nearEntityCollector = nearEntities::add;
+    private final ArrayList<Collider> nearObstacles = new ArrayList<>();
+    private Entity[] hitEntities = new Entity[4];
+    private float[] hitFractions = new float[4];
+    private int hitCount = 0;
+    
+    /**
+     * @param spreadInRadians Each pellet goes off at a random angle within
+     * this spread, centered on `angle`.
+     */
+    public PelletCluster(World world, Vector initialPosition, float angle, int pelletCount, float spreadInRadians) {
+        super(world, initialPosition, angle);
+        this.pelletCount = pelletCount;
+        this.liveCount = pelletCount;
+        pelletAngles = new float[pelletCount];
+        pelletX = new float[pelletCount];
+        pelletY = new float[pelletCount];
+        pelletOldX = new float[pelletCount];
+        pelletOldY = new float[pelletCount];
+        pelletPenetrations = new float[pelletCount];
+        hitIdCounts = new int[pelletCount];
+        for (int i = 0; i < pelletCount; i++) {
+            pelletAngles[i] = (float) (angle + spreadInRadians * Math.random() - spreadInRadians / 2);
+            pelletX[i] = pelletOldX[i] = initialPosition.getX();
+            pelletY[i] = pelletOldY[i] = initialPosition.getY();
+        }
+        Arrays.fill(pelletPenetrations, penetration);
+        maxHitsPerPellet = Math.max(1, (int) Math.ceil(penetration));
+        hitIds = new int[pelletCount * maxHitsPerPellet];
+    }
+    
+    @Override
+    public void render(GraphicsContext ctx, float alpha) {
+        for (int i = 0; i < liveCount; i++) {
+            ctx.save();
+            ctx.translate(pelletX[i], pelletY[i]);
+            ctx.rotate(Math.toDegrees(pelletAngles[i]));
+            ctx.drawImage(image, -image.getWidth() / 2, -image.getHeight() / 2);
+            ctx.restore();
+        }
+    }
+    
+    @Override
+    public void fixedUpdate(float deltaTime) {
+        handleMovement(deltaTime);
+        findNearby();
+        
+        for (int i = liveCount - 1; i >= 0; i--) {
+            // Everything hit before the first obstacle along the motion counts
+            float obstacleHit = findObstacleHit(i);
+            handleEntityCollision(i, obstacleHit < 0 ? 1 : obstacleHit);
+            
+            float distance = initialPosition.getDistanceFrom(pelletX[i], pelletY[i]);
+            if (obstacleHit >= 0 || pelletPenetrations[i] <= 0 || distance > maxDistance) {
+                removePellet(i);
+            }
+        }
+        
+        if (liveCount == 0) {
+            dispose();
+            return;
+        }
+        updatePosition();
+    }
+    
+    /**
+     * Move the pellets the way colliders move, and drop the ones that
+     * reach the edge of the world.
+     */
+    private void handleMovement(float deltaTime) {
+        Bounds bounds = world.getColliderWorld().getBounds();
+        float deltaTimeSquared = deltaTime * deltaTime;
+        for (int i = liveCount - 1; i >= 0; i--) {
+            float accelerationX = (float) Math.cos(pelletAngles[i]) * speed;
+            float accelerationY = (float) Math.sin(pelletAngles[i]) * speed;
+            float velocityX = pelletX[i] - pelletOldX[i];
+            float velocityY = pelletY[i] - pelletOldY[i];
+            pelletOldX[i] = pelletX[i];
+            pelletOldY[i] = pelletY[i];
+            pelletX[i] += (velocityX + accelerationX * deltaTimeSquared) - FRICTION * velocityX;
+            pelletY[i] += (velocityY + accelerationY * deltaTimeSquared) - FRICTION * velocityY;
+            
+            boolean isInsideBounds = pelletX[i] - RADIUS >= bounds.getX() &&
+                pelletX[i] + RADIUS <= bounds.getX() + bounds.getWidth() &&
+                pelletY[i] - RADIUS >= bounds.getY() &&
+                pelletY[i] + RADIUS <= bounds.getY() + bounds.getHeight();
+            if (!isInsideBounds) removePellet(i);
+        }
+    }
+    
+    /**
+     * Look up the entities and the movable obstacles around the motion of
+     * all the pellets at once.
+     */
+    private void findNearby() {
+        nearEntities.clear();
+        nearObstacles.clear();
+        if (liveCount == 0) return;
+        
+        float minX = Float.MAX_VALUE;
+        float minY = Float.MAX_VALUE;
+        float maxX = -Float.MAX_VALUE;
+        float maxY = -Float.MAX_VALUE;
+        for (int i = 0; i < liveCount; i++) {
+            minX = Math.min(minX, Math.min(pelletOldX[i], pelletX[i]));
+            minY = Math.min(minY, Math.min(pelletOldY[i], pelletY[i]));
+            maxX = Math.max(maxX, Math.max(pelletOldX[i], pelletX[i]));
+            maxY = Math.max(maxY, Math.max(pelletOldY[i], pelletY[i]));
+        }
+        sweptBounds.set(minX - RADIUS, minY - RADIUS, maxX + RADIUS, maxY + RADIUS);
+        world.getEntityIndex().query(sweptBounds, nearEntityCollector);
+        
+        // Map colliders that can move are only in the collider world
+        world.getColliderWorld().queryNearColliders(
+            sweptBounds,
+            Game.CollisionCategory.MAP.get(),
+            nearObstacles
+        );
+    }
+    
+    /**
+     * Find the first obstacle along the last motion of a pellet.
+     *
+     * @returns {number} How far along the motion it is hit, or -1.
+     */
+    private float findObstacleHit(int pellet) {
+        // Static obstacles are in the occupancy grid, the pellet is
+        // smaller than its cells so it is walked as a line
+        float min = world.getMap().getOccupancyGrid().getLineHitFraction(
+            pelletOldX[pellet],
+            pelletOldY[pellet],
+            pelletX[pellet],
+            pelletY[pellet]
+        );
+        if (min < 0) min = Float.MAX_VALUE;
+        
+        for (Collider obstacle : nearObstacles) {
+            float fraction = CollisionResolvers.getLineToColliderIntersectionFraction(
+                pelletOldX[pellet],
+                pelletOldY[pellet],
+                pelletX[pellet],
+                pelletY[pellet],
+                obstacle
+            );
+            if (fraction >= 0 && fraction < min) min = fraction;
+        }
+        
+        return min == Float.MAX_VALUE ? -1 : min;
+    }
+    
+    private void handleEntityCollision(int pellet, float maxFraction) {
+        // Collect the entities hit along the motion, nearest first
+        hitCount = 0;
+        for (Entity entity : nearEntities) {
+            if (isEntityMarked(pellet, entity)) continue;
+            Bounds hitBox = entity.getHitBox();
+            float fraction = CollisionResolvers.sweepCircleToBounds(
+                pelletOldX[pellet],
+                pelletOldY[pellet],
+                pelletX[pellet],
+                pelletY[pellet],
+                RADIUS,
+                hitBox.getX(),
+                hitBox.getY(),
+                hitBox.getWidth(),
+                hitBox.getHeight()
+            );
+            if (fraction < 0 || fraction > maxFraction) continue;
+            
+            if (hitCount == hitEntities.length) {
+                hitEntities = Arrays.copyOf(hitEntities, hitCount * 2);
+                hitFractions = Arrays.copyOf(hitFractions, hitCount * 2);
+            }
+            int i = hitCount++;
+            while (i > 0 && hitFractions[i - 1] > fraction) {
+                hitEntities[i] = hitEntities[i - 1];
+                hitFractions[i] = hitFractions[i - 1];
+                i--;
+            }
+            hitEntities[i] = entity;
+            hitFractions[i] = fraction;
+        }
+        
+        for (int i = 0; i < hitCount; i++) {
+            Entity entity = hitEntities[i];
+            hitEntities[i] = null;
+            if (pelletPenetrations[pellet] <= 0) continue;
+            
+            float penetrationPercentage = pelletPenetrations[pellet] >= 1 ? 1 : pelletPenetrations[pellet];
+            float computedDamage = getDamage() * penetrationPercentage;
+            
+            entity.addHealth(-computedDamage);
+            pelletPenetrations[pellet] -= penetrationPercentage;
+            markEntity(pellet, entity);
+            
+            // Add knock back
+            float angleToBullet = initialPosition.getAngle(entity.getCollider().getPosition());
+            entity.getCollider().applyForce(
+                (float) (Math.cos(angleToBullet) * knockBackForce * penetrationPercentage),
+                (float) (Math.sin(angleToBullet) * knockBackForce * penetrationPercentage)
+            );
+        }
+    }
+    
+    private boolean isEntityMarked(int pellet, Entity entity) {
+        int start = pellet * maxHitsPerPellet;
+        for (int i = start; i < start + hitIdCounts[pellet]; i++) {
+            if (hitIds[i] == entity.getId()) return true;
+        }
+        return false;
+    }
+    
+    private void markEntity(int pellet, Entity entity) {
+        // A pellet runs out of penetration before it runs out of room
+        if (hitIdCounts[pellet] == maxHitsPerPellet) return;
+        hitIds[pellet * maxHitsPerPellet + hitIdCounts[pellet]++] = entity.getId();
+    }
+    
+    /**
+     * Swap the pellet with the last live one, so the live pellets stay at
+     * the front of the arrays.
+     */
+    private void removePellet(int pellet) {
+        int last = --liveCount;
+        pelletAngles[pellet] = pelletAngles[last];
+        pelletX[pellet] = pelletX[last];
+        pelletY[pellet] = pelletY[last];
+        pelletOldX[pellet] = pelletOldX[last];
+        pelletOldY[pellet] = pelletOldY[last];
+        pelletPenetrations[pellet] = pelletPenetrations[last];
+        System.arraycopy(hitIds, last * maxHitsPerPellet, hitIds, pellet * maxHitsPerPellet, hitIdCounts[last]);
+        hitIdCounts[pellet] = hitIdCounts[last];
+    }
+    
+    /**
+     * Keep the position of the cluster at the middle of its pellets, it is
+     * what the cluster is sorted and culled by when rendering.
+     */
+    private void updatePosition() {
+        float sumX = 0;
+        float sumY = 0;
+        for (int i = 0; i < liveCount; i++) {
+            sumX += pelletX[i];
+            sumY += pelletY[i];
+        }
+        position.set(sumX / liveCount, sumY / liveCount);
+    }
+    
+    @Override
+    public void dispose() {
+        world.getProjectiles().remove(this);
+    }
+    
+    public void setSpeed(float speed) {
+        this.speed = speed;
+    }
+    
+    public void setMaxDistance(float maxDistance) {
+        this.maxDistance = maxDistance;
+    }
+    
+    /**
+     * Set the penetration of every pellet, before the cluster is updated.
+     */
+    public void setPenetration(float penetration) {
+        this.penetration = Math.max(0, penetration);
+        Arrays.fill(pelletPenetrations, this.penetration);
+        // Each hit takes up to 1 penetration
+        maxHitsPerPellet = Math.max(1, (int) Math.ceil(this.penetration));
+        hitIds = new int[pelletCount * maxHitsPerPellet];
+        Arrays.fill(hitIdCounts, 0);
+    }
+    
+    public float getSpeed() {
+        return speed;
+    }
+    
+    public float getMaxDistance() {
+        return maxDistance;
+    }
+    
+    public float getPenetration() {
+        return penetration;
+    }
+    
+    public int getLiveCount() {
+        return liveCount;
+    }
+}
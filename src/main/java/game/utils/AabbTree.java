@@ -0,0 +1,486 @@
+package game.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+
+/**
+ * A dynamic bounding volume tree. Leaves keep a slightly enlarged box
+ * across ticks, so an item that moves a little doesn't change the tree.
+ * Items that aren't inserted again after a `clear` are removed on `build`.
+ */
+public class AabbTree<T extends Broadphase.BoundedObject> implements Broadphase<T> {
+    // How much a leaf box is enlarged on each side
+    private static final float FAT_MARGIN = 4;
+    
+    /* Items of this tick, along with their bounds */
+    private Object[] items = new Object[256];
+    private float[] itemMinX = new float[256];
+    private float[] itemMinY = new float[256];
+    private float[] itemMaxX = new float[256];
+    private float[] itemMaxY = new float[256];
+    private int itemCount = 0;
+    
+    /* Nodes, free nodes are linked through `nodeParent` */
+    private float[] nodeMinX = new float[128];
+    private float[] nodeMinY = new float[128];
+    private float[] nodeMaxX = new float[128];
+    private float[] nodeMaxY = new float[128];
+    private int[] nodeParent = new int[128];
+    private int[] nodeChildA = new int[128];
+    private int[] nodeChildB = new int[128];
+    // 0 for leaves, -1 for free nodes
+    private int[] nodeHeight = new int[128];
+    private Object[] leafItem = new Object[128];
+    // Index of the leaf item in this tick, or -1 if it wasn't inserted again
+    private int[] leafItemIndex = new int[128];
+    private int nodeCapacity = 0;
+    private int freeNode = -1;
+    private int root = -1;
+    
+    private final IdentityHashMap<Object, Integer> leaves = new IdentityHashMap<>();
+    private boolean isBuilt = true;
+    
+    @Override
+    public void clear() {
+        for (int i = 0; i < itemCount; i++) {
+            leafItemIndex[leaves.get(items[i])] = -1;
+        }
+        Arrays.fill(items, 0, itemCount, null);
+        itemCount = 0;
+        isBuilt = false;
+    }
+    
+    @Override
+    public void insert(T item) {
+        if (itemCount == items.length) {
+            int capacity = itemCount * 2;
+            items = Arrays.copyOf(items, capacity);
+            itemMinX = Arrays.copyOf(itemMinX, capacity);
+            itemMinY = Arrays.copyOf(itemMinY, capacity);
+            itemMaxX = Arrays.copyOf(itemMaxX, capacity);
+            itemMaxY = Arrays.copyOf(itemMaxY, capacity);
+        }
+        
+        int index = itemCount++;
+        float halfWidth = item.getWidth() / 2;
+        float halfHeight = item.getHeight() / 2;
+        items[index] = item;
+        itemMinX[index] = item.getPosition().getX() - halfWidth;
+        itemMinY[index] = item.getPosition().getY() - halfHeight;
+        itemMaxX[index] = item.getPosition().getX() + halfWidth;
+        itemMaxY[index] = item.getPosition().getY() + halfHeight;
+        isBuilt = false;
+        
+        Integer leaf = leaves.get(item);
+        if (leaf == null) {
+            leaf = allocateNode();
+            leafItem[leaf] = item;
+            nodeHeight[leaf] = 0;
+            leaves.put(item, leaf);
+            setFatBounds(leaf, index);
+            insertLeaf(leaf);
+        } else if (
+            itemMinX[index] < nodeMinX[leaf] ||
+            itemMinY[index] < nodeMinY[leaf] ||
+            itemMaxX[index] > nodeMaxX[leaf] ||
+            itemMaxY[index] > nodeMaxY[leaf]
+        ) {
+            // Moved out of its box
+            removeLeaf(leaf);
+            setFatBounds(leaf, index);
+            insertLeaf(leaf);
+        }
+        leafItemIndex[leaf] = index;
+    }
+    
+    /**
+     * Remove the leaves of the items that weren't inserted since the last
+     * `clear`.
+     */
+    @Override
+    public void build() {
+        if (isBuilt) return;
+        if (leaves.size() > itemCount) {
+            for (int node = 0; node < nodeCapacity; node++) {
+                if (nodeHeight[node] != 0 || leafItemIndex[node] >= 0) continue;
+                leaves.remove(leafItem[node]);
+                removeLeaf(node);
+                freeNode(node);
+            }
+        }
+        isBuilt = true;
+    }
+    
+    private void setFatBounds(int leaf, int item) {
+        nodeMinX[leaf] = itemMinX[item] - FAT_MARGIN;
+        nodeMinY[leaf] = itemMinY[item] - FAT_MARGIN;
+        nodeMaxX[leaf] = itemMaxX[item] + FAT_MARGIN;
+        nodeMaxY[leaf] = itemMaxY[item] + FAT_MARGIN;
+    }
+    
+    private int allocateNode() {
+        if (freeNode < 0) {
+            int capacity = Math.max(nodeCapacity * 2, nodeMinX.length);
+            nodeMinX = Arrays.copyOf(nodeMinX, capacity);
+            nodeMinY = Arrays.copyOf(nodeMinY, capacity);
+            nodeMaxX = Arrays.copyOf(nodeMaxX, capacity);
+            nodeMaxY = Arrays.copyOf(nodeMaxY, capacity);
+            nodeParent = Arrays.copyOf(nodeParent, capacity);
+            nodeChildA = Arrays.copyOf(nodeChildA, capacity);
+            nodeChildB = Arrays.copyOf(nodeChildB, capacity);
+            nodeHeight = Arrays.copyOf(nodeHeight, capacity);
+            leafItem = Arrays.copyOf(leafItem, capacity);
+            leafItemIndex = Arrays.copyOf(leafItemIndex, capacity);
+            for (int node = capacity - 1; node >= nodeCapacity; node--) {
+                nodeHeight[node] = -1;
+                nodeParent[node] = freeNode;
+                freeNode = node;
+            }
+            nodeCapacity = capacity;
+        }
+        
+        int node = freeNode;
+        freeNode = nodeParent[node];
+        nodeParent[node] = -1;
+        nodeChildA[node] = -1;
+        nodeChildB[node] = -1;
+        nodeHeight[node] = 0;
+        leafItem[node] = null;
+        leafItemIndex[node] = -1;
+        return node;
+    }
+    
+    private void freeNode(int node) {
+        nodeHeight[node] = -1;
+        leafItem[node] = null;
+        leafItemIndex[node] = -1;
+        nodeParent[node] = freeNode;
+        freeNode = node;
+    }
+    
+    /**
+     * Attach the leaf next to the sibling that grows the perimeter of the
+     * tree the least.
+     */
+    private void insertLeaf(int leaf) {
+        if (root < 0) {
+            root = leaf;
+            nodeParent[leaf] = -1;
+            return;
+        }
+        
+        int sibling = root;
+        while (nodeHeight[sibling] > 0) {
+            int childA = nodeChildA[sibling];
+            int childB = nodeChildB[sibling];
+            float perimeter = getPerimeter(sibling);
+            float combinedPerimeter = getCombinedPerimeter(sibling, leaf);
+            
+            // Cost of pairing the leaf with this node
+            float cost = 2 * combinedPerimeter;
+            // Cost of pushing the leaf further down
+            float inheritanceCost = 2 * (combinedPerimeter - perimeter);
+            float costA = getDescendCost(childA, leaf) + inheritanceCost;
+            float costB = getDescendCost(childB, leaf) + inheritanceCost;
+            if (cost < costA && cost < costB) break;
+            sibling = costA < costB ? childA : childB;
+        }
+        
+        int oldParent = nodeParent[sibling];
+        int newParent = allocateNode();
+        nodeParent[newParent] = oldParent;
+        nodeHeight[newParent] = nodeHeight[sibling] + 1;
+        if (oldParent < 0) {
+            root = newParent;
+        } else if (nodeChildA[oldParent] == sibling) {
+            nodeChildA[oldParent] = newParent;
+        } else {
+            nodeChildB[oldParent] = newParent;
+        }
+        nodeChildA[newParent] = sibling;
+        nodeChildB[newParent] = leaf;
+        nodeParent[sibling] = newParent;
+        nodeParent[leaf] = newParent;
+        
+        refit(newParent);
+    }
+    
+    private void removeLeaf(int leaf) {
+        if (leaf == root) {
+            root = -1;
+            return;
+        }
+        
+        int parent = nodeParent[leaf];
+        int grandParent = nodeParent[parent];
+        int sibling = nodeChildA[parent] == leaf ? nodeChildB[parent] : nodeChildA[parent];
+        freeNode(parent);
+        nodeParent[leaf] = -1;
+        nodeParent[sibling] = grandParent;
+        if (grandParent < 0) {
+            root = sibling;
+            return;
+        }
+        
+        if (nodeChildA[grandParent] == parent) {
+            nodeChildA[grandParent] = sibling;
+        } else {
+            nodeChildB[grandParent] = sibling;
+        }
+        refit(grandParent);
+    }
+    
+    /**
+     * Recompute the boxes and heights from the node up to the root,
+     * rotating the nodes that are out of balance.
+     */
+    private void refit(int node) {
+        while (node >= 0) {
+            node = balance(node);
+            int childA = nodeChildA[node];
+            int childB = nodeChildB[node];
+            nodeHeight[node] = 1 + Math.max(nodeHeight[childA], nodeHeight[childB]);
+            setCombinedBounds(node, childA, childB);
+            node = nodeParent[node];
+        }
+    }
+    
+    /**
+     * If one child of the node is more than one level taller than the
+     * other, move it up in place of the node.
+     *
+     * @returns {number} The node now at the position of `node`.
+     */
+    private int balance(int node) {
+        if (nodeHeight[node] < 2) return node;
+        int childA = nodeChildA[node];
+        int childB = nodeChildB[node];
+        int difference = nodeHeight[childB] - nodeHeight[childA];
+        if (difference > 1) return rotate(node, childB, childA, false);
+        if (difference < -1) return rotate(node, childA, childB, true);
+        return node;
+    }
+    
+    /**
+     * Move `tall` up in place of `node`. The shorter grandchild below `tall`
+     * takes the place of `tall` below `node`.
+     */
+    private int rotate(int node, int tall, int other, boolean isTallChildA) {
+        int grandChildA = nodeChildA[tall];
+        int grandChildB = nodeChildB[tall];
+        
+        // Put tall where node was
+        int parent = nodeParent[node];
+        nodeParent[tall] = parent;
+        if (parent < 0) {
+            root = tall;
+        } else if (nodeChildA[parent] == node) {
+            nodeChildA[parent] = tall;
+        } else {
+            nodeChildB[parent] = tall;
+        }
+        nodeChildA[tall] = node;
+        nodeParent[node] = tall;
+        
+        int taller = grandChildA;
+        int shorter = grandChildB;
+        if (nodeHeight[grandChildA] <= nodeHeight[grandChildB]) {
+            taller = grandChildB;
+            shorter = grandChildA;
+        }
+        nodeChildB[tall] = taller;
+        if (isTallChildA) {
+            nodeChildA[node] = shorter;
+        } else {
+            nodeChildB[node] = shorter;
+        }
+        nodeParent[shorter] = node;
+        
+        setCombinedBounds(node, other, shorter);
+        nodeHeight[node] = 1 + Math.max(nodeHeight[other], nodeHeight[shorter]);
+        setCombinedBounds(tall, node, taller);
+        nodeHeight[tall] = 1 + Math.max(nodeHeight[node], nodeHeight[taller]);
+        return tall;
+    }
+    
+    private void setCombinedBounds(int node, int nodeA, int nodeB) {
+        nodeMinX[node] = Math.min(nodeMinX[nodeA], nodeMinX[nodeB]);
+        nodeMinY[node] = Math.min(nodeMinY[nodeA], nodeMinY[nodeB]);
+        nodeMaxX[node] = Math.max(nodeMaxX[nodeA], nodeMaxX[nodeB]);
+        nodeMaxY[node] = Math.max(nodeMaxY[nodeA], nodeMaxY[nodeB]);
+    }
+    
+    private float getPerimeter(int node) {
+        return 2 * (nodeMaxX[node] - nodeMinX[node] + nodeMaxY[node] - nodeMinY[node]);
+    }
+    
+    private float getCombinedPerimeter(int nodeA, int nodeB) {
+        float width = Math.max(nodeMaxX[nodeA], nodeMaxX[nodeB]) - Math.min(nodeMinX[nodeA], nodeMinX[nodeB]);
+        float height = Math.max(nodeMaxY[nodeA], nodeMaxY[nodeB]) - Math.min(nodeMinY[nodeA], nodeMinY[nodeB]);
+        return 2 * (width + height);
+    }
+    
+    private float getDescendCost(int child, int leaf) {
+        float cost = getCombinedPerimeter(child, leaf);
+        if (nodeHeight[child] > 0) cost -= getPerimeter(child);
+        return cost;
+    }
+    
+    @Override
+    public void retrieve(BoundedObject bounds, ArrayList<T> result) {
+        result.clear();
+        query(bounds, result, null);
+    }
+    
+    @Override
+    public void query(BoundedObject bounds, ItemVisitor<T> visitor) {
+        query(bounds, null, visitor);
+    }
+    
+    private void query(BoundedObject bounds, ArrayList<T> result, ItemVisitor<T> visitor) {
+        build();
+        if (root < 0) return;
+        float halfWidth = bounds.getWidth() / 2;
+        float halfHeight = bounds.getHeight() / 2;
+        queryNode(
+            root,
+            bounds.getPosition().getX() - halfWidth,
+            bounds.getPosition().getY() - halfHeight,
+            bounds.getPosition().getX() + halfWidth,
+            bounds.getPosition().getY() + halfHeight,
+            -1,
+            result,
+            visitor,
+            null
+        );
+    }
+    
+    @Override
+    public float queryRay(
+        float startX,
+        float startY,
+        float endX,
+        float endY,
+        float radius,
+        float maxFraction,
+        RayVisitor<T> visitor
+    ) {
+        build();
+        if (root < 0) return maxFraction;
+        return queryRayNode(root, startX, startY, endX, endY, radius, maxFraction, visitor);
+    }
+    
+    /**
+     * The items are the ranges of `forEachPair`.
+     */
+    @Override
+    public int getPairRangeCount() {
+        build();
+        return itemCount;
+    }
+    
+    /**
+     * Visit every pair of overlapping items once, from the item that was
+     * inserted first.
+     */
+    @Override
+    public void forEachPair(int fromItem, int toItem, PairVisitor<T> visitor) {
+        build();
+        for (int item = fromItem; item < toItem; item++) {
+            queryNode(
+                root,
+                itemMinX[item],
+                itemMinY[item],
+                itemMaxX[item],
+                itemMaxY[item],
+                item,
+                null,
+                null,
+                visitor
+            );
+        }
+    }
+    
+    /**
+     * Visit the items below the node that overlap the bounds. When
+     * `pairItem` is given, only the items inserted after it are visited, as
+     * pairs with it.
+     */
+    @SuppressWarnings("unchecked")
+    private void queryNode(
+        int node,
+        float minX,
+        float minY,
+        float maxX,
+        float maxY,
+        int pairItem,
+        ArrayList<T> result,
+        ItemVisitor<T> itemVisitor,
+        PairVisitor<T> pairVisitor
+    ) {
+        if (nodeMaxX[node] < minX || maxX < nodeMinX[node]) return;
+        if (nodeMaxY[node] < minY || maxY < nodeMinY[node]) return;
+        if (nodeHeight[node] > 0) {
+            queryNode(nodeChildA[node], minX, minY, maxX, maxY, pairItem, result, itemVisitor, pairVisitor);
+            queryNode(nodeChildB[node], minX, minY, maxX, maxY, pairItem, result, itemVisitor, pairVisitor);
+            return;
+        }
+        
+        // Test the exact bounds of the item instead of the leaf box
+        int item = leafItemIndex[node];
+        if (item <= pairItem) return;
+        if (itemMaxX[item] < minX || maxX < itemMinX[item]) return;
+        if (itemMaxY[item] < minY || maxY < itemMinY[item]) return;
+        if (pairVisitor != null) {
+            pairVisitor.visit((T) items[pairItem], (T) items[item]);
+        } else if (result != null) {
+            result.add((T) items[item]);
+        } else {
+            itemVisitor.visit((T) items[item]);
+        }
+    }
+    
+    @SuppressWarnings("unchecked")
+    private float queryRayNode(
+        int node,
+        float startX,
+        float startY,
+        float endX,
+        float endY,
+        float radius,
+        float maxFraction,
+        RayVisitor<T> visitor
+    ) {
+        float fraction = Broadphase.getRayEntryFraction(
+            startX,
+            startY,
+            endX,
+            endY,
+            nodeMinX[node] - radius,
+            nodeMinY[node] - radius,
+            nodeMaxX[node] + radius,
+            nodeMaxY[node] + radius
+        );
+        if (fraction < 0 || fraction > maxFraction) return maxFraction;
+        if (nodeHeight[node] > 0) {
+            maxFraction = queryRayNode(nodeChildA[node], startX, startY, endX, endY, radius, maxFraction, visitor);
+            return queryRayNode(nodeChildB[node], startX, startY, endX, endY, radius, maxFraction, visitor);
+        }
+        
+        // Test the exact bounds of the item instead of the leaf box
+        int item = leafItemIndex[node];
+        fraction = Broadphase.getRayEntryFraction(
+            startX,
+            startY,
+            endX,
+            endY,
+            itemMinX[item] - radius,
+            itemMinY[item] - radius,
+            itemMaxX[item] + radius,
+            itemMaxY[item] + radius
+        );
+        if (fraction < 0 || fraction > maxFraction) return maxFraction;
+        return visitor.visit((T) items[item], maxFraction);
+    }
+}
@@ -0,0 +1,43 @@
+package game.utils;
+
+/**
+ * A box to query a broadphase with, see `Broadphase.query`.
+ */
+public class BoundingBox implements Broadphase.BoundedObject {
+    private final Vector position = new Vector();
+    private float width = 0;
+    private float height = 0;
+    
+    public BoundingBox() {
+        
+    }
+    
+    public BoundingBox(float minX, float minY, float maxX, float maxY) {
+        set(minX, minY, maxX, maxY);
+    }
+    
+    public BoundingBox set(float minX, float minY, float maxX, float maxY) {
+        position.set((minX + maxX) / 2, (minY + maxY) / 2);
+        width = maxX - minX;
+        height = maxY - minY;
+        return this;
+    }
+    
+    /**
+     * Get the center of the box.
+     */
+    @Override
+    public Vector getPosition() {
+        return position;
+    }
+    
+    @Override
+    public float getWidth() {
+        return width;
+    }
+    
+    @Override
+    public float getHeight() {
+        return height;
+    }
+}
@@ -0,0 +1,159 @@
+package game.utils;
+
+import java.util.ArrayList;
+
+/**
+ * A spatial index that finds the items whose bounds may overlap.
+ * Items are collected with `insert` after a `clear`, and `build` makes
+ * the index ready to be read. Reading is safe from several threads at
+ * once, as long as nothing is inserted in the meantime.
+ */
+public interface Broadphase<T extends Broadphase.BoundedObject> {
+    enum Type {
+        HASH_GRID,
+        QUADTREE,
+        AABB_TREE,
+        SWEEP_AND_PRUNE
+    }
+    
+    /**
+     * An object whose bounds are centered at its position.
+     */
+    interface BoundedObject {
+        Vector getPosition();
+        
+        float getWidth();
+        
+        float getHeight();
+    }
+    
+    interface PairVisitor<T> {
+        void visit(T itemA, T itemB);
+    }
+    
+    interface ItemVisitor<T> {
+        void visit(T item);
+    }
+    
+    interface RayVisitor<T> {
+        /**
+         * @param maxFraction How far along the ray is still searched.
+         * @returns {number} The new limit of the search, lower than
+         * `maxFraction` to cut it short.
+         */
+        float visit(T item, float maxFraction);
+    }
+    
+    void clear();
+    
+    void insert(T item);
+    
+    /**
+     * Index the inserted items. Reads build the index when needed, but it
+     * has to be built ahead of reading it from several threads.
+     */
+    void build();
+    
+    /**
+     * Get the number of ranges `forEachPair` can be split into.
+     */
+    int getPairRangeCount();
+    
+    /**
+     * Visit the pairs found from the ranges `fromRange` to `toRange`
+     * (exclusive). Across all ranges, each pair is visited exactly once.
+     */
+    void forEachPair(int fromRange, int toRange, PairVisitor<T> visitor);
+    
+    default void forEachPair(PairVisitor<T> visitor) {
+        forEachPair(0, getPairRangeCount(), visitor);
+    }
+    
+    /**
+     * Visit the items that may overlap `bounds`, each one once.
+     */
+    void query(BoundedObject bounds, ItemVisitor<T> visitor);
+    
+    /**
+     * Write the items that may overlap `bounds` into `result`.
+     */
+    void retrieve(BoundedObject bounds, ArrayList<T> result);
+    
+    /**
+     * Visit the items whose bounds the ray from start to end may cross,
+     * skipping the ones past the limit set by the visitor. A radius makes
+     * the ray a swept circle, the items within it of the ray are visited
+     * too.
+     *
+     * @param maxFraction How far along the ray to search at first.
+     * @returns {number} The limit of the search once it's done.
+     */
+    float queryRay(
+        float startX,
+        float startY,
+        float endX,
+        float endY,
+        float radius,
+        float maxFraction,
+        RayVisitor<T> visitor
+    );
+    
+    default ArrayList<T> retrieve(BoundedObject bounds) {
+        ArrayList<T> result = new ArrayList<>();
+        retrieve(bounds, result);
+        return result;
+    }
+    
+    /**
+     * Get how far along the ray from start to end it enters the box.
+     *
+     * @returns {number} The fraction, 0 if it starts inside of the box, or
+     * -1 if it doesn't reach the box.
+     */
+    static float getRayEntryFraction(
+        float startX,
+        float startY,
+        float endX,
+        float endY,
+        float minX,
+        float minY,
+        float maxX,
+        float maxY
+    ) {
+        float enter = 0;
+        float exit = 1;
+        float directionX = endX - startX;
+        float directionY = endY - startY;
+        if (directionX == 0) {
+            if (startX < minX || startX > maxX) return -1;
+        } else {
+            float fractionA = (minX - startX) / directionX;
+            float fractionB = (maxX - startX) / directionX;
+            enter = Math.max(enter, Math.min(fractionA, fractionB));
+            exit = Math.min(exit, Math.max(fractionA, fractionB));
+        }
+        if (directionY == 0) {
+            if (startY < minY || startY > maxY) return -1;
+        } else {
+            float fractionA = (minY - startY) / directionY;
+            float fractionB = (maxY - startY) / directionY;
+            enter = Math.max(enter, Math.min(fractionA, fractionB));
+            exit = Math.min(exit, Math.max(fractionA, fractionB));
+        }
+        return enter <= exit ? enter : -1;
+    }
+    
+    /**
+     * Create an empty index of the given type that covers `bounds`.
+     *
+     * @param cellSize The size of the smallest cells, if the type has any.
+     */
+    static <T extends BoundedObject> Broadphase<T> create(Type type, Bounds bounds, int cellSize) {
+        return switch (type) {
+            case HASH_GRID -> new HashGrid<>(bounds, cellSize);
+            case QUADTREE -> new Quadtree<>(bounds, 10, cellSize);
+            case AABB_TREE -> new AabbTree<>();
+            case SWEEP_AND_PRUNE -> new SweepAndPrune<>();
+        };
+    }
+}
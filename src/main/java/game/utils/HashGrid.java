@@ -1,93 +1,354 @@
 package game.utils;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
 
-public class HashGrid<T extends HashGrid.BoundedObject> {
-    private final HashMap<Integer, ArrayList<T>> _cells = new HashMap<>();
+/**
+ * A dense spatial hash over a fixed area. Items are collected with `insert`
+ * and sorted into cells with a counting sort when the grid is first read,
+ * so rebuilding it every tick doesn't allocate once the arrays have grown.
+ */
+public class HashGrid<T extends Broadphase.BoundedObject> implements Broadphase<T> {
+    private final float originX;
+    private final float originY;
+    private final int columns;
+    private final int rows;
     // Used to convert X coords into column index
-    private int _cellWidthShift = 0;
+    private final int _cellWidthShift;
     // Used to convert Y coords into row index
-    private int _cellHeightShift = 0;
+    private final int _cellHeightShift;
     
-    public HashGrid() {
-        this.setCellWidth(32);
-        this.setCellHeight(32);
-    }
+    /* Items, and the range of cells each of them covers (end is exclusive) */
+    private Object[] items = new Object[256];
+    private int[] itemStartX = new int[256];
+    private int[] itemStartY = new int[256];
+    private int[] itemEndX = new int[256];
+    private int[] itemEndY = new int[256];
+    private int itemCount = 0;
+    // Box around all the items, they can reach past the grid
+    private float itemsMinX = Float.MAX_VALUE;
+    private float itemsMinY = Float.MAX_VALUE;
+    private float itemsMaxX = -Float.MAX_VALUE;
+    private float itemsMaxY = -Float.MAX_VALUE;
     
-    public interface BoundedObject {
-        Vector getPosition();
-        
-        float getWidth();
-        
-        float getHeight();
+    /* Cells, indexed by `row * columns + column` */
+    private final int[] cellStart;
+    private final int[] cellCount;
+    // Item indices, grouped by cell
+    private int[] cellEntries = new int[1024];
+    // Indices of the non-empty cells, in ascending order
+    private int[] occupiedCells = new int[256];
+    private int occupiedCellCount = 0;
+    private boolean isBuilt = true;
+    
+    public HashGrid(Bounds bounds, int cellSize) {
+        this._cellWidthShift = (int) Math.floor(log2(cellSize));
+        this._cellHeightShift = (int) Math.floor(log2(cellSize));
+        this.originX = bounds.getX();
+        this.originY = bounds.getY();
+        this.columns = Math.max(1, ((int) Math.ceil(bounds.getWidth()) >> _cellWidthShift) + 1);
+        this.rows = Math.max(1, ((int) Math.ceil(bounds.getHeight()) >> _cellHeightShift) + 1);
+        this.cellStart = new int[columns * rows];
+        this.cellCount = new int[columns * rows];
     }
     
+    @Override
     public void clear() {
-        this._cells.clear();
+        Arrays.fill(items, 0, itemCount, null);
+        itemCount = 0;
+        itemsMinX = Float.MAX_VALUE;
+        itemsMinY = Float.MAX_VALUE;
+        itemsMaxX = -Float.MAX_VALUE;
+        itemsMaxY = -Float.MAX_VALUE;
+        for (int i = 0; i < occupiedCellCount; i++) {
+            cellCount[occupiedCells[i]] = 0;
+        }
+        occupiedCellCount = 0;
+        isBuilt = true;
     }
     
+    @Override
     public void insert(T item) {
-        int startX = this._getColumnIndex(item.getPosition().getX());
-        int startY = this._getRowIndex(item.getPosition().getY());
-        int endX = this._getColumnIndex(item.getPosition().getX() + item.getWidth()) + 1;
-        int endY = this._getRowIndex(item.getPosition().getY() + item.getHeight()) + 1;
+        if (itemCount == items.length) {
+            int capacity = itemCount * 2;
+            items = Arrays.copyOf(items, capacity);
+            itemStartX = Arrays.copyOf(itemStartX, capacity);
+            itemStartY = Arrays.copyOf(itemStartY, capacity);
+            itemEndX = Arrays.copyOf(itemEndX, capacity);
+            itemEndY = Arrays.copyOf(itemEndY, capacity);
+        }
+        
+        items[itemCount] = item;
+        itemStartX[itemCount] = this._getStartColumnIndex(item);
+        itemStartY[itemCount] = this._getStartRowIndex(item);
+        itemEndX[itemCount] = this._getEndColumnIndex(item);
+        itemEndY[itemCount] = this._getEndRowIndex(item);
+        itemCount++;
+        
+        float halfWidth = item.getWidth() / 2;
+        float halfHeight = item.getHeight() / 2;
+        itemsMinX = Math.min(itemsMinX, item.getPosition().getX() - halfWidth);
+        itemsMinY = Math.min(itemsMinY, item.getPosition().getY() - halfHeight);
+        itemsMaxX = Math.max(itemsMaxX, item.getPosition().getX() + halfWidth);
+        itemsMaxY = Math.max(itemsMaxY, item.getPosition().getY() + halfHeight);
+        isBuilt = false;
+    }
+    
+    /**
+     * Sort the inserted items into their cells. This is done on the first
+     * read after an insert, but can be called ahead of reading the grid
+     * from several threads at once.
+     */
+    @Override
+    public void build() {
+        if (isBuilt) return;
         
-        for (int x = startX; x < endX; x++) {
-            for (int y = startY; y < endY; y++) {
-                int key = this._getHashKey(x, y);
-                if (!this._cells.containsKey(key)) {
-                    this._cells.put(key, new ArrayList<>());
+        // Reset the counts of the last build
+        for (int i = 0; i < occupiedCellCount; i++) {
+            cellCount[occupiedCells[i]] = 0;
+        }
+        
+        // Count the items of each cell
+        int entryCount = 0;
+        for (int i = 0; i < itemCount; i++) {
+            for (int y = itemStartY[i]; y < itemEndY[i]; y++) {
+                for (int x = itemStartX[i]; x < itemEndX[i]; x++) {
+                    cellCount[y * columns + x]++;
+                    entryCount++;
                 }
-                this._cells.get(key).add(item);
             }
         }
-    }
-    
-    public ArrayList<T> retrieve(BoundedObject bounds) {
-        ArrayList<T> result = new ArrayList<>();
-        int startX = this._getColumnIndex(bounds.getPosition().getX());
-        int startY = this._getRowIndex(bounds.getPosition().getY());
-        int endX = this._getColumnIndex(bounds.getPosition().getX() + bounds.getWidth()) + 1;
-        int endY = this._getRowIndex(bounds.getPosition().getY() + bounds.getHeight()) + 1;
         
-        for (int x = startX; x < endX; x++) {
-            for (int y = startY; y < endY; y++) {
-                int key = this._getHashKey(x, y);
-                ArrayList<T> items = this._cells.get(key);
-                if (items != null) {
-                    result.addAll(items);
+        // Find where each cell starts
+        occupiedCellCount = 0;
+        int start = 0;
+        for (int cell = 0; cell < cellCount.length; cell++) {
+            cellStart[cell] = start;
+            if (cellCount[cell] == 0) continue;
+            start += cellCount[cell];
+            if (occupiedCellCount == occupiedCells.length) {
+                occupiedCells = Arrays.copyOf(occupiedCells, occupiedCellCount * 2);
+            }
+            occupiedCells[occupiedCellCount++] = cell;
+        }
+        
+        // Place the items, using the counts as cursors
+        if (cellEntries.length < entryCount) {
+            cellEntries = new int[Math.max(entryCount, cellEntries.length * 2)];
+        }
+        for (int i = 0; i < occupiedCellCount; i++) {
+            cellCount[occupiedCells[i]] = 0;
+        }
+        for (int i = 0; i < itemCount; i++) {
+            for (int y = itemStartY[i]; y < itemEndY[i]; y++) {
+                for (int x = itemStartX[i]; x < itemEndX[i]; x++) {
+                    int cell = y * columns + x;
+                    cellEntries[cellStart[cell] + cellCount[cell]++] = i;
                 }
             }
         }
         
-        return result;
+        isBuilt = true;
     }
     
-    public void setCellWidth(int cellWidth) {
-        this._cellWidthShift = (int) Math.floor(log2(cellWidth));
+    /**
+     * Write the items that share a cell with `bounds` into `result`.
+     * Each item is written once even if it shares several cells.
+     */
+    @Override
+    public void retrieve(BoundedObject bounds, ArrayList<T> result) {
+        result.clear();
+        query(bounds, result, null);
     }
     
-    public void setCellHeight(int cellHeight) {
-        this._cellHeightShift = (int) Math.floor(log2(cellHeight));
+    /**
+     * Visit the items that share a cell with `bounds`, each one once.
+     */
+    @Override
+    public void query(BoundedObject bounds, ItemVisitor<T> visitor) {
+        query(bounds, null, visitor);
     }
     
-    private static double log2(int N) {
-        return (Math.log(N) / Math.log(2));
+    @SuppressWarnings("unchecked")
+    private void query(BoundedObject bounds, ArrayList<T> result, ItemVisitor<T> visitor) {
+        build();
+        int startX = this._getStartColumnIndex(bounds);
+        int startY = this._getStartRowIndex(bounds);
+        int endX = this._getEndColumnIndex(bounds);
+        int endY = this._getEndRowIndex(bounds);
+        
+        for (int y = startY; y < endY; y++) {
+            for (int x = startX; x < endX; x++) {
+                int cell = y * columns + x;
+                int end = cellStart[cell] + cellCount[cell];
+                for (int entry = cellStart[cell]; entry < end; entry++) {
+                    int item = cellEntries[entry];
+                    // Only visit the item in the first cell it shares with the bounds
+                    if (Math.max(startX, itemStartX[item]) != x) continue;
+                    if (Math.max(startY, itemStartY[item]) != y) continue;
+                    if (result != null) {
+                        result.add((T) items[item]);
+                    } else {
+                        visitor.visit((T) items[item]);
+                    }
+                }
+            }
+        }
     }
     
     /**
-     * Get the hash key of X and Y coordinates. This assumes that
-     * X and Y have been converted into column and row indices respectively.
-     *
-     * @param x The column index.
-     * @param y The row index.
-     * @returns {number} A number that represents the hash key.
+     * Get the number of cells that have at least one item, these are the
+     * ranges of `forEachPair`.
      */
-    private int _getHashKey(int x, int y) {
-        // Total of 32 bits
-        // Let X take the left 16 bits and Y take the right 16 bits
-        return (x << 16) | y;
+    @Override
+    public int getPairRangeCount() {
+        build();
+        return occupiedCellCount;
+    }
+    
+    /**
+     * Visit every pair of items that share at least one cell, exactly once.
+     * Items can span several cells, so a pair is only visited in the first
+     * cell (top-left most) that both items occupy. Only the occupied cells
+     * are numbered, so disjoint ranges can be walked in parallel.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public void forEachPair(int fromCell, int toCell, PairVisitor<T> visitor) {
+        build();
+        for (int i = fromCell; i < toCell; i++) {
+            int cell = occupiedCells[i];
+            int cellX = cell % columns;
+            int cellY = cell / columns;
+            int end = cellStart[cell] + cellCount[cell];
+            for (int entryA = cellStart[cell]; entryA < end; entryA++) {
+                int itemA = cellEntries[entryA];
+                for (int entryB = entryA + 1; entryB < end; entryB++) {
+                    int itemB = cellEntries[entryB];
+                    if (Math.max(itemStartX[itemA], itemStartX[itemB]) != cellX) continue;
+                    if (Math.max(itemStartY[itemA], itemStartY[itemB]) != cellY) continue;
+                    visitor.visit((T) items[itemA], (T) items[itemB]);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Walk the cells along the ray (DDA), nearest first, until the next
+     * cell is past the limit set by the visitor. Items past the grid are
+     * kept in the edge cells, so the walk goes on over them and reads the
+     * nearest edge cell. With a radius, the cells around each walked cell
+     * that the radius reaches are read too.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public float queryRay(
+        float startX,
+        float startY,
+        float endX,
+        float endY,
+        float radius,
+        float maxFraction,
+        RayVisitor<T> visitor
+    ) {
+        build();
+        if (itemCount == 0) return maxFraction;
+        float cellWidth = 1 << _cellWidthShift;
+        float cellHeight = 1 << _cellHeightShift;
+        int reachX = (int) Math.ceil(radius / cellWidth);
+        int reachY = (int) Math.ceil(radius / cellHeight);
+        
+        // Only the part of the ray within reach of the grid or the items is walked
+        int minColumn = Math.min(0, (int) Math.floor((itemsMinX - originX) / cellWidth)) - reachX;
+        int minRow = Math.min(0, (int) Math.floor((itemsMinY - originY) / cellHeight)) - reachY;
+        int maxColumn = Math.max(columns - 1, (int) Math.floor((itemsMaxX - originX) / cellWidth)) + reachX;
+        int maxRow = Math.max(rows - 1, (int) Math.floor((itemsMaxY - originY) / cellHeight)) + reachY;
+        float fraction = Broadphase.getRayEntryFraction(
+            startX,
+            startY,
+            endX,
+            endY,
+            originX + minColumn * cellWidth,
+            originY + minRow * cellHeight,
+            originX + (maxColumn + 1) * cellWidth,
+            originY + (maxRow + 1) * cellHeight
+        );
+        if (fraction < 0 || fraction > maxFraction) return maxFraction;
+        
+        // Work in cell units
+        float directionX = (endX - startX) / cellWidth;
+        float directionY = (endY - startY) / cellHeight;
+        float x = (startX - originX) / cellWidth + directionX * fraction;
+        float y = (startY - originY) / cellHeight + directionY * fraction;
+        int column = Math.max(minColumn, Math.min(maxColumn, (int) Math.floor(x)));
+        int row = Math.max(minRow, Math.min(maxRow, (int) Math.floor(y)));
+        int stepX = directionX > 0 ? 1 : directionX < 0 ? -1 : 0;
+        int stepY = directionY > 0 ? 1 : directionY < 0 ? -1 : 0;
+        
+        // Fraction of the ray to cross one cell, and to reach the next one
+        float deltaX = stepX == 0 ? Float.MAX_VALUE : Math.abs(1 / directionX);
+        float deltaY = stepY == 0 ? Float.MAX_VALUE : Math.abs(1 / directionY);
+        float nextX = stepX == 0 ? Float.MAX_VALUE : fraction + (stepX > 0 ? column + 1 - x : x - column) * deltaX;
+        float nextY = stepY == 0 ? Float.MAX_VALUE : fraction + (stepY > 0 ? row + 1 - y : y - row) * deltaY;
+        
+        // Cells read by the last step, empty before the first one
+        int previousMinColumn = 0;
+        int previousMaxColumn = -1;
+        int previousMinRow = 0;
+        int previousMaxRow = -1;
+        while (true) {
+            int gridColumn = Math.max(0, Math.min(columns - 1, column));
+            int gridRow = Math.max(0, Math.min(rows - 1, row));
+            int windowMinColumn = Math.max(0, gridColumn - reachX);
+            int windowMaxColumn = Math.min(columns - 1, gridColumn + reachX);
+            int windowMinRow = Math.max(0, gridRow - reachY);
+            int windowMaxRow = Math.min(rows - 1, gridRow + reachY);
+            // Outside the grid, several steps can read the same edge cells
+            boolean isNewWindow = windowMinColumn != previousMinColumn || windowMaxColumn != previousMaxColumn ||
+                windowMinRow != previousMinRow || windowMaxRow != previousMaxRow;
+            for (int cellY = windowMinRow; isNewWindow && cellY <= windowMaxRow; cellY++) {
+                for (int cellX = windowMinColumn; cellX <= windowMaxColumn; cellX++) {
+                    int cell = cellY * columns + cellX;
+                    int end = cellStart[cell] + cellCount[cell];
+                    for (int entry = cellStart[cell]; entry < end; entry++) {
+                        int item = cellEntries[entry];
+                        // Only visit the item in the first cell it shares with the window
+                        if (Math.max(windowMinColumn, itemStartX[item]) != cellX) continue;
+                        if (Math.max(windowMinRow, itemStartY[item]) != cellY) continue;
+                        // The walk can't come back to an item once it leaves it,
+                        // so it is only visited by the first step that reads it
+                        if (
+                            itemStartX[item] <= previousMaxColumn && previousMinColumn < itemEndX[item] &&
+                                itemStartY[item] <= previousMaxRow && previousMinRow < itemEndY[item]
+                        ) {
+                            continue;
+                        }
+                        maxFraction = visitor.visit((T) items[item], maxFraction);
+                    }
+                }
+            }
+            
+            previousMinColumn = windowMinColumn;
+            previousMaxColumn = windowMaxColumn;
+            previousMinRow = windowMinRow;
+            previousMaxRow = windowMaxRow;
+            if (nextX < nextY) {
+                fraction = nextX;
+                nextX += deltaX;
+                column += stepX;
+            } else {
+                fraction = nextY;
+                nextY += deltaY;
+                row += stepY;
+            }
+            if (fraction > maxFraction) break;
+            if (column < minColumn || column > maxColumn || row < minRow || row > maxRow) break;
+        }
+        return maxFraction;
+    }
+    
+    private static double log2(int N) {
+        return (Math.log(N) / Math.log(2));
     }
     
     /**
@@ -97,7 +358,9 @@ public class HashGrid<T extends HashGrid.BoundedObject> {
      * @returns {number} The row index of the Y coordinate.
      */
     private int _getRowIndex(float y) {
-        return (int) y >> this._cellHeightShift;
+        // Anything outside the grid is kept in the edge cells
+        int row = (int) Math.floor(y - originY) >> this._cellHeightShift;
+        return Math.max(0, Math.min(rows - 1, row));
     }
     
     /**
@@ -107,6 +370,23 @@ public class HashGrid<T extends HashGrid.BoundedObject> {
      * @returns {number} The column index of the X coordinate.
      */
     private int _getColumnIndex(float x) {
-        return (int) x >> this._cellWidthShift;
+        int column = (int) Math.floor(x - originX) >> this._cellWidthShift;
+        return Math.max(0, Math.min(columns - 1, column));
+    }
+    
+    private int _getStartColumnIndex(BoundedObject bounds) {
+        return this._getColumnIndex(bounds.getPosition().getX() - bounds.getWidth() / 2);
+    }
+    
+    private int _getStartRowIndex(BoundedObject bounds) {
+        return this._getRowIndex(bounds.getPosition().getY() - bounds.getHeight() / 2);
+    }
+    
+    private int _getEndColumnIndex(BoundedObject bounds) {
+        return this._getColumnIndex(bounds.getPosition().getX() + bounds.getWidth() / 2) + 1;
+    }
+    
+    private int _getEndRowIndex(BoundedObject bounds) {
+        return this._getRowIndex(bounds.getPosition().getY() + bounds.getHeight() / 2) + 1;
     }
-}
\ No newline at end of file
+}
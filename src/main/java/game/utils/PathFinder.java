@@ -3,26 +3,63 @@ package game.utils;
 import game.World;
 import game.colliders.Collider;
 import game.colliders.CollisionResolvers;
+import game.map.OccupancyGrid;
 import game.utils.Bounds;
 import game.utils.Common;
 import game.utils.Vector;
 import javafx.scene.paint.Color;
 import javafx.scene.paint.Paint;
-import utils.Heap;
+import utils.Async;
+import utils.IndexedHeap;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 public class PathFinder {
+    /**
+     * A_STAR searches a path per request, JUMP_POINT does the same but
+     * skips over the nodes of open stretches (Jump Point Search), and
+     * FLOW_FIELD shares one field towards a single goal with every seeker.
+     */
+    public enum Mode {
+        A_STAR,
+        JUMP_POINT,
+        FLOW_FIELD
+    }
+    
+    /* Offsets and step costs of the 8 neighbors of a node */
+    private static final int[] NEIGHBOR_OFFSETS_X = {-1, -1, -1, 0, 0, 1, 1, 1};
+    private static final int[] NEIGHBOR_OFFSETS_Y = {-1, 0, 1, -1, 1, -1, 0, 1};
+    private static final int[] NEIGHBOR_COSTS = {14, 10, 14, 10, 10, 14, 10, 14};
+    
     private final int nodeSize;
     private final HashSet<Collider> obstacles = new HashSet<>();
-    private Node[][] nodes;
+    private OccupancyGrid occupancyGrid = null;
     private int totalWidth = 0;
     private int totalHeight = 0;
     private int gridLengthX = 0;
     private int gridLengthY = 0;
+    private Mode mode = Mode.A_STAR;
+    
+    // Bit per node, set for obstacles, see `buildObstacleGrid`
+    private volatile long[] obstacleGrid = null;
+    private final int obstacleGridWordsPerRow;
+    
+    // The state of a search, one per thread searching
+    private final ThreadLocal<SearchContext> searchContexts = ThreadLocal.withInitial(
+        () -> new SearchContext(gridLengthX * gridLengthY)
+    );
+    
+    /* Flow field */
+    private volatile int[] flowField = null;
+    private volatile boolean isFlowFieldPending = false;
+    private int flowFieldGoalX = -1;
+    private int flowFieldGoalY = -1;
     
     public PathFinder(int nodeSize, int width, int height) {
         this.nodeSize = nodeSize;
@@ -30,7 +67,7 @@ public class PathFinder {
         this.totalHeight = height;
         this.gridLengthX = width / nodeSize;
         this.gridLengthY = height / nodeSize;
-        this.nodes = new Node[gridLengthX][gridLengthY];
+        this.obstacleGridWordsPerRow = (gridLengthX + 63) >> 6;
     }
     
     public int getNodeSize() {
@@ -41,152 +78,507 @@ public class PathFinder {
         return obstacles;
     }
     
+    /**
+     * Use the grid for the static obstacles instead of testing their shapes.
+     */
+    public void setOccupancyGrid(OccupancyGrid occupancyGrid) {
+        this.occupancyGrid = occupancyGrid;
+    }
+    
+    public Mode getMode() {
+        return mode;
+    }
+    
+    public void setMode(Mode mode) {
+        this.mode = mode;
+    }
+    
+    /**
+     * Rebuilds the flow field in the background, but only when `goal`
+     * has moved to another grid cell since the last build.
+     */
+    public void updateFlowField(Vector goal) {
+        if (isFlowFieldPending) return;
+        
+        int goalX = getGridX(goal.getX());
+        int goalY = getGridY(goal.getY());
+        if (goalX == flowFieldGoalX && goalY == flowFieldGoalY) return;
+        
+        flowFieldGoalX = goalX;
+        flowFieldGoalY = goalY;
+        isFlowFieldPending = true;
+        Vector goalClone = goal.clone();
+        Async.queue1.submit(() -> {
+            try {
+                flowField = computeFlowField(goalClone);
+            } finally {
+                isFlowFieldPending = false;
+            }
+        });
+    }
+    
+    /**
+     * Write the center of the next node to walk to from `position` into
+     * `result`, based on the last built flow field. Every seeker asks for
+     * this every tick, so nothing is allocated.
+     *
+     * @returns {boolean} False if there's no field yet or if the goal
+     * can't be reached from `position`, `result` is left as it was then.
+     */
+    public boolean getFlowFieldStep(Vector position, Vector result) {
+        int[] field = flowField;
+        if (field == null) return false;
+        
+        int nextIndex = field[getNodeFromPosition(position)];
+        if (nextIndex == -1) return false;
+        
+        float halfNodeSize = (float) nodeSize / 2;
+        result.set(
+            (nextIndex % gridLengthX) * nodeSize + halfNodeSize,
+            (nextIndex / gridLengthX) * nodeSize + halfNodeSize
+        );
+        return true;
+    }
+    
+    /**
+     * Builds an integration field from the goal (Dijkstra) and stores, for
+     * every node, the index of its neighbor that is closest to the goal.
+     */
+    private int[] computeFlowField(Vector goal) {
+        int goalIndex = getProperNodeIfObstacle(
+            getNodeFromPosition(goal),
+            goal
+        );
+        
+        int nodeCount = gridLengthX * gridLengthY;
+        int[] costs = new int[nodeCount];
+        int[] field = new int[nodeCount];
+        Arrays.fill(costs, Integer.MAX_VALUE);
+        Arrays.fill(field, -1);
+        
+        costs[goalIndex] = 0;
+        field[goalIndex] = goalIndex;
+        
+        IndexedHeap openNodes = new IndexedHeap(nodeCount, (a, b) -> Integer.compare(costs[a], costs[b]));
+        openNodes.add(goalIndex);
+        
+        while (!openNodes.isEmpty()) {
+            int index = openNodes.remove();
+            int cost = costs[index];
+            
+            int x = index % gridLengthX;
+            int y = index / gridLengthX;
+            for (int i = 0; i < NEIGHBOR_COSTS.length; i++) {
+                int neighborIndex = getNeighborIndex(x, y, i);
+                if (neighborIndex == -1 || isObstacle(neighborIndex)) continue;
+                
+                int neighborCost = cost + NEIGHBOR_COSTS[i];
+                if (neighborCost >= costs[neighborIndex]) continue;
+                
+                boolean isOpen = costs[neighborIndex] != Integer.MAX_VALUE;
+                costs[neighborIndex] = neighborCost;
+                field[neighborIndex] = index;
+                if (isOpen) {
+                    openNodes.decreaseKey(neighborIndex);
+                } else {
+                    openNodes.add(neighborIndex);
+                }
+            }
+        }
+        
+        // Let seekers that got pushed into an obstacle walk out of it
+        for (int index = 0; index < nodeCount; index++) {
+            if (field[index] != -1) continue;
+            int x = index % gridLengthX;
+            int y = index / gridLengthX;
+            int minCost = Integer.MAX_VALUE;
+            for (int i = 0; i < NEIGHBOR_COSTS.length; i++) {
+                int neighborIndex = getNeighborIndex(x, y, i);
+                if (neighborIndex == -1 || isObstacle(neighborIndex) || costs[neighborIndex] >= minCost) continue;
+                minCost = costs[neighborIndex];
+                field[index] = neighborIndex;
+            }
+        }
+        
+        return field;
+    }
+    
     public ArrayList<Vector> requestPath(Vector start, Vector goal) {
         ArrayList<Vector> path = new ArrayList<>();
         
-        Node startNode = getProperNodeIfObstacle(
-            getOrCreateNodeFromPosition(start),
+        int startIndex = getProperNodeIfObstacle(
+            getNodeFromPosition(start),
             start
         );
         
-        Node goalNode = getProperNodeIfObstacle(
-            getOrCreateNodeFromPosition(goal),
+        int goalIndex = getProperNodeIfObstacle(
+            getNodeFromPosition(goal),
             goal
         );
         
-        // // render start node
-        // Node finalStartNode = startNode;
-        // World.debugRender.put(startNode.x + "." + startNode.y, ctx -> {
-        //     ctx.beginPath();
-        //     ctx.setFill(Paint.valueOf("rgba(0, 0, 255, 0.5)"));
-        //     ctx.fillRect(finalStartNode.x * nodeSize, finalStartNode.y * nodeSize, nodeSize, nodeSize);
-        //     ctx.closePath();
-        // });
-        //
-        // // render goal node
-        // Node finalGoalNode = goalNode;
-        // World.debugRender.put(goalNode.x + ".." + goalNode.y, ctx -> {
-        //     ctx.beginPath();
-        //     ctx.setFill(Paint.valueOf(finalGoalNode.isObstacle ? "rgba(255, 0, 255, 0.75)" : "rgba(0, 255, 0, 0.5)"));
-        //     ctx.fillRect(finalGoalNode.x * nodeSize, finalGoalNode.y * nodeSize, nodeSize, nodeSize);
-        //     ctx.closePath();
-        // });
-        
-        // // render neighbors of goal node
-        // ArrayList<Node> neighbors = getNodeNeighbors(goalNode);
-        // for (Node node : neighbors) {
-        //     World.debugRender.put(node.x + "." + node.y, ctx -> {
+        // // render start and goal nodes
+        // for (int index : new int[]{startIndex, goalIndex}) {
+        //     World.debugRender.put(index + ".", ctx -> {
         //         ctx.beginPath();
-        //         ctx.setFill(Paint.valueOf("rgba(255, 0, 255, 0.5)"));
-        //         ctx.fillRect(node.x * nodeSize, node.y * nodeSize, nodeSize, nodeSize);
+        //         ctx.setFill(Paint.valueOf(index == startIndex ? "rgba(0, 0, 255, 0.5)" : "rgba(0, 255, 0, 0.5)"));
+        //         ctx.fillRect((index % gridLengthX) * nodeSize, (index / gridLengthX) * nodeSize, nodeSize, nodeSize);
         //         ctx.closePath();
         //     });
         // }
         
         // // render map
-        // for (int x = 0; x < gridLengthX; x++) {
-        //     for (int y = 0; y < gridLengthY; y++) {
-        //         Node node = getOrCreateNode(x, y);
-        //         World.debugRender.put(node.x + ".," + node.y, ctx -> {
-        //             ctx.beginPath();
-        //             ctx.setFill(Paint.valueOf(node.isObstacle ? "rgba(255, 0, 0, 0.25)" : "rgba(0, 255, 0, 0.25)"));
-        //             ctx.fillRect(node.x * nodeSize + 1, node.y * nodeSize + 1, nodeSize - 2, nodeSize - 2);
-        //             ctx.closePath();
-        //         });
-        //     }
+        // for (int index = 0; index < gridLengthX * gridLengthY; index++) {
+        //     int finalIndex = index;
+        //     World.debugRender.put(index + ".,", ctx -> {
+        //         ctx.beginPath();
+        //         ctx.setFill(Paint.valueOf(isObstacle(finalIndex) ? "rgba(255, 0, 0, 0.25)" : "rgba(0, 255, 0, 0.25)"));
+        //         ctx.fillRect((finalIndex % gridLengthX) * nodeSize + 1, (finalIndex / gridLengthX) * nodeSize + 1, nodeSize - 2, nodeSize - 2);
+        //         ctx.closePath();
+        //     });
         // }
         
-        // Perform A* algorithm
-        Heap<Node> openNodes = new Heap<>((a, b) -> {
-            if (a.fCost == b.fCost) return a.hCost - b.hCost;
-            return a.fCost - b.fCost;
-        });
-        HashSet<Integer> closedNodes = new HashSet<>();
-        openNodes.add(startNode);
+        SearchContext context = searchContexts.get();
+        context.begin();
+        boolean isGoalFound = mode == Mode.JUMP_POINT
+            ? searchJumpPoints(context, startIndex, goalIndex)
+            : searchAStar(context, startIndex, goalIndex);
+        if (isGoalFound) {
+            path = retracePath(context, startIndex, goalIndex);
+        }
+        
+        return path;
+    }
+    
+    /**
+     * Perform A* algorithm, the open nodes are keyed by their grid index.
+     *
+     * @returns {boolean} Whether the goal was reached.
+     */
+    private boolean searchAStar(SearchContext context, int startIndex, int goalIndex) {
+        int goalX = goalIndex % gridLengthX;
+        int goalY = goalIndex / gridLengthX;
+        IndexedHeap openNodes = context.openNodes;
+        context.visit(
+            startIndex,
+            0,
+            computeNodeDistances(startIndex % gridLengthX, startIndex / gridLengthX, goalX, goalY),
+            -1
+        );
+        openNodes.add(startIndex);
         
         while (!openNodes.isEmpty()) {
-            Node currentNode = openNodes.remove();
-            closedNodes.add(currentNode.id);
+            int currentIndex = openNodes.remove();
+            context.close(currentIndex);
             
-            if (currentNode == goalNode) {
-                path = retracePath(startNode, goalNode);
-                break;
-            }
+            if (currentIndex == goalIndex) return true;
             
-            ArrayList<Node> neighbors = getNodeNeighbors(currentNode);
-            for (Node neighborNode : neighbors) {
-                if (neighborNode.isObstacle || closedNodes.contains(neighborNode.id)) {
+            int currentX = currentIndex % gridLengthX;
+            int currentY = currentIndex / gridLengthX;
+            for (int i = 0; i < NEIGHBOR_COSTS.length; i++) {
+                int neighborIndex = getNeighborIndex(currentX, currentY, i);
+                if (neighborIndex == -1 || isObstacle(neighborIndex) || context.isClosed(neighborIndex)) {
                     continue;
                 }
                 
-                int movementCostToNeighbor = currentNode.gCost + computeNodeDistances(
-                    currentNode,
-                    neighborNode
+                openOrUpdate(
+                    context,
+                    neighborIndex,
+                    context.gCosts[currentIndex] + NEIGHBOR_COSTS[i],
+                    goalX,
+                    goalY,
+                    currentIndex
                 );
-                boolean isNeighborInOpen = openNodes.contains(neighborNode);
-                if (movementCostToNeighbor < neighborNode.gCost || !isNeighborInOpen) {
-                    neighborNode.gCost = movementCostToNeighbor;
-                    neighborNode.hCost = computeNodeDistances(neighborNode, goalNode);
-                    neighborNode.fCost = neighborNode.gCost + neighborNode.hCost;
-                    neighborNode.parent = currentNode;
-                    
-                    if (!isNeighborInOpen) {
-                        openNodes.add(neighborNode);
-                    }
-                }
             }
         }
         
-        return path;
+        return false;
     }
     
     /**
-     * If `node` is an obstacle, it computes the last node that is not
-     * an obstacle by using the `currentPosition` and `lastPosition` and returns it.
-     * If `node` is not an obstacle, it just updates the `lastPosition`.
+     * Jump Point Search, A* that only opens the nodes where the best path
+     * may turn. From each node it jumps along the directions that aren't
+     * pruned until it finds such a node, so open stretches cost no heap
+     * work. The paths cost the same as the ones of `searchAStar`.
+     *
+     * @returns {boolean} Whether the goal was reached.
      */
-    private Node getProperNodeIfObstacle(Node node, Vector currentPosition) {
-        if (!node.isObstacle) return node;
-        
-        ArrayList<Node> neighbors = new ArrayList<>(
-            getNodeNeighbors(node)
-                .stream()
-                .filter(v -> !v.isObstacle)
-                .toList()
+    private boolean searchJumpPoints(SearchContext context, int startIndex, int goalIndex) {
+        int goalX = goalIndex % gridLengthX;
+        int goalY = goalIndex / gridLengthX;
+        IndexedHeap openNodes = context.openNodes;
+        context.visit(
+            startIndex,
+            0,
+            computeNodeDistances(startIndex % gridLengthX, startIndex / gridLengthX, goalX, goalY),
+            -1
         );
+        openNodes.add(startIndex);
         
-        if (neighbors.isEmpty()) {
-            return node;
+        while (!openNodes.isEmpty()) {
+            int currentIndex = openNodes.remove();
+            context.close(currentIndex);
+            
+            if (currentIndex == goalIndex) return true;
+            
+            int currentX = currentIndex % gridLengthX;
+            int currentY = currentIndex / gridLengthX;
+            int parentIndex = context.parents[currentIndex];
+            int parentDirectionX = 0;
+            int parentDirectionY = 0;
+            if (parentIndex != -1) {
+                parentDirectionX = Integer.signum(currentX - parentIndex % gridLengthX);
+                parentDirectionY = Integer.signum(currentY - parentIndex / gridLengthX);
+            }
+            
+            for (int i = 0; i < NEIGHBOR_COSTS.length; i++) {
+                int directionX = NEIGHBOR_OFFSETS_X[i];
+                int directionY = NEIGHBOR_OFFSETS_Y[i];
+                boolean isPruned = parentIndex != -1 && !isJumpDirection(
+                    currentX,
+                    currentY,
+                    parentDirectionX,
+                    parentDirectionY,
+                    directionX,
+                    directionY
+                );
+                if (isPruned) continue;
+                
+                int jumpIndex = jump(currentX + directionX, currentY + directionY, directionX, directionY, goalIndex);
+                if (jumpIndex == -1 || context.isClosed(jumpIndex)) continue;
+                
+                openOrUpdate(
+                    context,
+                    jumpIndex,
+                    context.gCosts[currentIndex] + computeNodeDistances(
+                        currentX,
+                        currentY,
+                        jumpIndex % gridLengthX,
+                        jumpIndex / gridLengthX
+                    ),
+                    goalX,
+                    goalY,
+                    currentIndex
+                );
+            }
         }
         
+        return false;
+    }
+    
+    /**
+     * Open the node, or give it the cheaper cost and parent if it was
+     * reached already.
+     */
+    private void openOrUpdate(SearchContext context, int index, int gCost, int goalX, int goalY, int parentIndex) {
+        if (context.isVisited(index) && gCost >= context.gCosts[index]) return;
+        
+        context.visit(
+            index,
+            gCost,
+            computeNodeDistances(index % gridLengthX, index / gridLengthX, goalX, goalY),
+            parentIndex
+        );
+        
+        if (context.openNodes.contains(index)) {
+            context.openNodes.decreaseKey(index);
+        } else {
+            context.openNodes.add(index);
+        }
+    }
+    
+    /**
+     * Whether a path that came into (x, y) along the parent direction may
+     * go on along the given direction. It goes on the way it was going,
+     * plus the straight parts of a diagonal, plus the ways around the
+     * obstacles next to the node (its forced neighbors).
+     */
+    private boolean isJumpDirection(
+        int x,
+        int y,
+        int parentDirectionX,
+        int parentDirectionY,
+        int directionX,
+        int directionY
+    ) {
+        if (parentDirectionX != 0 && parentDirectionY != 0) {
+            if (directionX == parentDirectionX && directionY == parentDirectionY) return true;
+            if (directionX == 0 && directionY == parentDirectionY) return true;
+            if (directionX == parentDirectionX && directionY == 0) return true;
+            if (directionX == -parentDirectionX && directionY == parentDirectionY) {
+                return isBlocked(x - parentDirectionX, y);
+            }
+            if (directionX == parentDirectionX && directionY == -parentDirectionY) {
+                return isBlocked(x, y - parentDirectionY);
+            }
+            return false;
+        }
+        
+        if (parentDirectionX != 0) {
+            if (directionX != parentDirectionX) return false;
+            if (directionY == 0) return true;
+            return isBlocked(x, y + directionY);
+        }
+        
+        if (directionY != parentDirectionY) return false;
+        if (directionX == 0) return true;
+        return isBlocked(x + directionX, y);
+    }
+    
+    /**
+     * Walk from (x, y) along the direction until a node worth opening: the
+     * goal, a node with a forced neighbor, or for diagonals, a node that a
+     * straight jump finds one from.
+     *
+     * @returns {number} The grid index of the node, or -1 if the walk
+     * runs into an obstacle or off the grid.
+     */
+    private int jump(int x, int y, int directionX, int directionY, int goalIndex) {
+        while (true) {
+            if (isBlocked(x, y)) return -1;
+            
+            int index = y * gridLengthX + x;
+            if (index == goalIndex) return index;
+            
+            if (directionX != 0 && directionY != 0) {
+                boolean hasForcedNeighbor =
+                    (!isBlocked(x - directionX, y + directionY) && isBlocked(x - directionX, y)) ||
+                        (!isBlocked(x + directionX, y - directionY) && isBlocked(x, y - directionY));
+                if (hasForcedNeighbor) return index;
+                
+                boolean isStraightJumpFound = jump(x + directionX, y, directionX, 0, goalIndex) != -1 ||
+                    jump(x, y + directionY, 0, directionY, goalIndex) != -1;
+                if (isStraightJumpFound) return index;
+            } else if (directionX != 0) {
+                boolean hasForcedNeighbor =
+                    (!isBlocked(x + directionX, y + 1) && isBlocked(x, y + 1)) ||
+                        (!isBlocked(x + directionX, y - 1) && isBlocked(x, y - 1));
+                if (hasForcedNeighbor) return index;
+            } else {
+                boolean hasForcedNeighbor =
+                    (!isBlocked(x + 1, y + directionY) && isBlocked(x + 1, y)) ||
+                        (!isBlocked(x - 1, y + directionY) && isBlocked(x - 1, y));
+                if (hasForcedNeighbor) return index;
+            }
+            
+            x += directionX;
+            y += directionY;
+        }
+    }
+    
+    /**
+     * Whether the node is an obstacle or off the grid.
+     */
+    private boolean isBlocked(int x, int y) {
+        if (x < 0 || x >= gridLengthX || y < 0 || y >= gridLengthY) return true;
+        return isObstacle(x, y);
+    }
+    
+    /**
+     * If the node at `index` is an obstacle, find the neighbor that isn't
+     * one and is nearest to `currentPosition`.
+     *
+     * @returns {number} The index of that neighbor, or `index` if the node
+     * isn't an obstacle or all its neighbors are.
+     */
+    private int getProperNodeIfObstacle(int index, Vector currentPosition) {
+        if (!isObstacle(index)) return index;
+        
+        // The nearest neighbor that isn't an obstacle, the first one on ties
         float halfNodeSize = (float) nodeSize / 2;
-        neighbors.sort((a, b) -> {
-            Vector nodePosA = new Vector(
-                a.x * nodeSize + halfNodeSize,
-                a.y * nodeSize + halfNodeSize
-            );
-            int distanceA = (int) nodePosA.getDistanceFrom(
-                currentPosition
-            );
-            Vector nodePosB = new Vector(
-                b.x * nodeSize + halfNodeSize,
-                b.y * nodeSize + halfNodeSize
-            );
-            int distanceB = (int) nodePosB.getDistanceFrom(
-                currentPosition
+        int x = index % gridLengthX;
+        int y = index / gridLengthX;
+        int properIndex = index;
+        int minDistance = Integer.MAX_VALUE;
+        for (int i = 0; i < NEIGHBOR_COSTS.length; i++) {
+            int neighborIndex = getNeighborIndex(x, y, i);
+            if (neighborIndex == -1 || isObstacle(neighborIndex)) continue;
+            
+            int distance = (int) currentPosition.getDistanceFrom(
+                (x + NEIGHBOR_OFFSETS_X[i]) * nodeSize + halfNodeSize,
+                (y + NEIGHBOR_OFFSETS_Y[i]) * nodeSize + halfNodeSize
             );
-            return distanceA - distanceB;
-        });
+            if (distance < minDistance) {
+                minDistance = distance;
+                properIndex = neighborIndex;
+            }
+        }
         
-        return neighbors.getFirst();
+        return properIndex;
     }
     
-    HashSet<String> cachedObstacles = new HashSet<>();
+    /**
+     * Test every node against the obstacles once and keep the results, so
+     * later obstacle checks are a bit lookup. The rows are split between
+     * `Async.workers`. Call it after the obstacles and the occupancy grid
+     * are set, later changes to them aren't picked up.
+     */
+    public void buildObstacleGrid() {
+        long[] grid = new long[obstacleGridWordsPerRow * gridLengthY];
+        int chunkCount = Math.min(
+            gridLengthY,
+            Math.max(1, Runtime.getRuntime().availableProcessors() - 1)
+        );
+        
+        ArrayList<Callable<Void>> tasks = new ArrayList<>();
+        for (int chunk = 0; chunk < chunkCount; chunk++) {
+            int startY = gridLengthY * chunk / chunkCount;
+            int endY = gridLengthY * (chunk + 1) / chunkCount;
+            tasks.add(() -> {
+                fillObstacleGridRows(grid, startY, endY);
+                return null;
+            });
+        }
+        
+        try {
+            for (Future<Void> future : Async.workers.invokeAll(tasks)) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            // Build the grid on this thread rather than leaving holes. Workers
+            // may still be writing to the first one, so start a fresh one
+            long[] serialGrid = new long[grid.length];
+            fillObstacleGridRows(serialGrid, 0, gridLengthY);
+            obstacleGrid = serialGrid;
+            return;
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+        
+        obstacleGrid = grid;
+    }
+    
+    private void fillObstacleGridRows(long[] grid, int startY, int endY) {
+        // Every row starts on its own word, so the rows can be written at the same time
+        for (int y = startY; y < endY; y++) {
+            int rowStart = y * obstacleGridWordsPerRow;
+            for (int x = 0; x < gridLengthX; x++) {
+                if (testObstacle(x, y)) {
+                    grid[rowStart + (x >> 6)] |= 1L << x;
+                }
+            }
+        }
+    }
     
     public boolean isObstacle(int x, int y) {
-        if (cachedObstacles.contains(x + "." + y)) return true;
+        long[] grid = obstacleGrid;
+        if (grid == null) return testObstacle(x, y);
+        return (grid[y * obstacleGridWordsPerRow + (x >> 6)] & (1L << x)) != 0;
+    }
+    
+    private boolean testObstacle(int x, int y) {
         // arbitrary buffer to prevent collision on edge
         float nodeSizeBuffer = 2;
+        if (occupancyGrid != null) {
+            boolean isBlocked = occupancyGrid.isAreaBlocked(
+                x * nodeSize + nodeSizeBuffer / 2,
+                y * nodeSize + nodeSizeBuffer / 2,
+                nodeSize - nodeSizeBuffer,
+                nodeSize - nodeSizeBuffer
+            );
+            if (isBlocked) return true;
+        }
+        
         Bounds bounds = new Bounds(
             x * nodeSize + nodeSizeBuffer / 2,
             y * nodeSize + nodeSizeBuffer / 2,
@@ -195,137 +587,164 @@ public class PathFinder {
         );
         
         for (Collider collider : obstacles) {
-            boolean isColliding = collider.isCollidingWith(bounds);
-            if (isColliding) {
-                // cache if static
-                if (collider.isStatic()) {
-                    cachedObstacles.add(x + "." + y);
-                } else {
-                    cachedObstacles.remove(x + "." + y);
-                }
-                return true;
-            }
+            if (occupancyGrid != null && collider.isStatic()) continue;
+            if (collider.isCollidingWith(bounds)) return true;
         }
         
         return false;
     }
     
     public int[] convertWorldPositionToGridPosition(Vector position) {
+        return new int[]{getGridX(position.getX()), getGridY(position.getY())};
+    }
+    
+    private int getGridX(float x) {
         float nodeSizeHalf = (float) nodeSize / 2;
-        float percentMidX = position.getX() / ((float) totalWidth / 2f);
-        float percentMidY = position.getY() / ((float) totalHeight / 2f);
+        float percentMidX = x / ((float) totalWidth / 2f);
         float percentX = Common.clamp(
-            (position.getX() + nodeSizeHalf * percentMidX - nodeSizeHalf) / totalWidth,
+            (x + nodeSizeHalf * percentMidX - nodeSizeHalf) / totalWidth,
             0,
             1
         );
+        return Math.round((gridLengthX - 1) * percentX);
+    }
+    
+    private int getGridY(float y) {
+        float nodeSizeHalf = (float) nodeSize / 2;
+        float percentMidY = y / ((float) totalHeight / 2f);
         float percentY = Common.clamp(
-            (position.getY() + nodeSizeHalf * percentMidY - nodeSizeHalf) / totalHeight,
+            (y + nodeSizeHalf * percentMidY - nodeSizeHalf) / totalHeight,
             0,
             1
         );
-        int gridX = Math.round((gridLengthX - 1) * percentX);
-        int gridY = Math.round((gridLengthY - 1) * percentY);
-        return new int[]{gridX, gridY};
+        return Math.round((gridLengthY - 1) * percentY);
     }
     
-    private Node getOrCreateNodeFromPosition(Vector position) {
-        int[] gridPosition = convertWorldPositionToGridPosition(position);
-        int gridX = gridPosition[0];
-        int gridY = gridPosition[1];
-        return getOrCreateNode(gridX, gridY);
+    private int getNodeFromPosition(Vector position) {
+        return getGridY(position.getY()) * gridLengthX + getGridX(position.getX());
     }
     
-    private Node getOrCreateNode(int x, int y) {
-        // If it exists already, return it
-        Node cachedNode = this.nodes[x][y];
-        if (cachedNode != null) {
-            return cachedNode;
-        }
-        
-        // If it doesn't exist, create it
-        Node node = new Node();
-        node.x = x;
-        node.y = y;
-        node.isObstacle = isObstacle(node.x, node.y);
-        this.nodes[x][y] = node;
-        
-        return node;
+    private boolean isObstacle(int index) {
+        return isObstacle(index % gridLengthX, index / gridLengthX);
     }
     
-    
-    HashMap<Integer, ArrayList<Node>> cachedNeighbors = new HashMap<>();
-    
-    private ArrayList<Node> getNodeNeighbors(Node node) {
-        ArrayList<Node> cached = cachedNeighbors.get(node.id);
-        if (cached != null) {
-            return cached;
-        }
-        
-        ArrayList<Node> neighbors = new ArrayList<>();
-        for (int x = -1; x <= 1; x++) {
-            for (int y = -1; y <= 1; y++) {
-                if (x == 0 && y == 0) continue;
-                int possibleX = node.x + x;
-                int possibleY = node.y + y;
-                
-                if (
-                    possibleX >= 0 &&
-                        possibleX < gridLengthX &&
-                        possibleY >= 0 &&
-                        possibleY < gridLengthY
-                ) {
-                    neighbors.add(getOrCreateNode(possibleX, possibleY));
-                }
-            }
+    /**
+     * Get the grid index of a neighbor of the node at (x, y).
+     *
+     * @param neighbor Which one, an index in `NEIGHBOR_OFFSETS_X`.
+     * @returns {number} The grid index, or -1 if it is outside the grid.
+     */
+    private int getNeighborIndex(int x, int y, int neighbor) {
+        int neighborX = x + NEIGHBOR_OFFSETS_X[neighbor];
+        int neighborY = y + NEIGHBOR_OFFSETS_Y[neighbor];
+        if (neighborX < 0 || neighborX >= gridLengthX || neighborY < 0 || neighborY >= gridLengthY) {
+            return -1;
         }
-        
-        cachedNeighbors.put(node.id, neighbors);
-        
-        return neighbors;
+        return neighborY * gridLengthX + neighborX;
     }
     
     /**
      * Get distance between 2 nodes.
      */
-    private static int computeNodeDistances(Node a, Node b) {
-        int distanceX = Math.abs(a.x - b.x);
-        int distanceY = Math.abs(a.y - b.y);
+    private static int computeNodeDistances(int aX, int aY, int bX, int bY) {
+        int distanceX = Math.abs(aX - bX);
+        int distanceY = Math.abs(aY - bY);
         
         if (distanceX > distanceY) return 14 * distanceY + 10 * (distanceX - distanceY);
         return 14 * distanceX + 10 * (distanceY - distanceX);
     }
     
     /**
-     * Retrace the correct order of path between 2 nodes.
+     * Retrace the correct order of path between 2 nodes. Parents that
+     * aren't next to their node (jump points) are joined by a straight or
+     * diagonal line, and the nodes along it are added too.
      */
-    private ArrayList<Vector> retracePath(Node startNode, Node goalNode) {
+    private ArrayList<Vector> retracePath(SearchContext context, int startIndex, int goalIndex) {
         ArrayList<Vector> path = new ArrayList<>();
         float halfNodeSize = (float) this.nodeSize / 2;
-        Node currentNode = goalNode;
-        while (currentNode != startNode) {
-            path.add(new Vector(
-                currentNode.x * this.nodeSize + halfNodeSize,
-                currentNode.y * this.nodeSize + halfNodeSize
-            ));
-            currentNode = currentNode.parent;
+        int currentIndex = goalIndex;
+        while (currentIndex != startIndex) {
+            int parentIndex = context.parents[currentIndex];
+            int x = currentIndex % gridLengthX;
+            int y = currentIndex / gridLengthX;
+            int parentX = parentIndex % gridLengthX;
+            int parentY = parentIndex / gridLengthX;
+            int stepX = Integer.signum(parentX - x);
+            int stepY = Integer.signum(parentY - y);
+            while (x != parentX || y != parentY) {
+                path.add(new Vector(
+                    x * this.nodeSize + halfNodeSize,
+                    y * this.nodeSize + halfNodeSize
+                ));
+                x += stepX;
+                y += stepY;
+            }
+            currentIndex = parentIndex;
         }
         path.add(new Vector(
-            startNode.x * this.nodeSize + halfNodeSize,
-            startNode.y * this.nodeSize + halfNodeSize
+            (startIndex % gridLengthX) * this.nodeSize + halfNodeSize,
+            (startIndex / gridLengthX) * this.nodeSize + halfNodeSize
         ));
         
         return path;
     }
     
-    private static class Node {
-        public final int id = Common.generateId();
-        public int x = 0;
-        public int y = 0;
-        public int fCost = 0;
-        public int hCost = 0;
-        public int gCost = 0;
-        public boolean isObstacle = false;
-        public Node parent = null;
+    /**
+     * The costs of the nodes in one search, indexed by grid index. A node's
+     * costs and its closed mark only count if they were stamped with the
+     * current generation, so a new search just bumps the generation
+     * instead of clearing them.
+     */
+    private static class SearchContext {
+        private final int[] gCosts;
+        private final int[] hCosts;
+        private final int[] parents;
+        private final int[] generations;
+        private final int[] closedGenerations;
+        private final IndexedHeap openNodes;
+        private int generation = 0;
+        
+        private SearchContext(int nodeCount) {
+            gCosts = new int[nodeCount];
+            hCosts = new int[nodeCount];
+            parents = new int[nodeCount];
+            generations = new int[nodeCount];
+            closedGenerations = new int[nodeCount];
+            openNodes = new IndexedHeap(nodeCount, (a, b) -> {
+                int fCostA = gCosts[a] + hCosts[a];
+                int fCostB = gCosts[b] + hCosts[b];
+                if (fCostA == fCostB) return hCosts[a] - hCosts[b];
+                return fCostA - fCostB;
+            });
+        }
+        
+        private void begin() {
+            openNodes.clear();
+            generation++;
+            if (generation == Integer.MAX_VALUE) {
+                Arrays.fill(generations, 0);
+                Arrays.fill(closedGenerations, 0);
+                generation = 1;
+            }
+        }
+        
+        private boolean isVisited(int index) {
+            return generations[index] == generation;
+        }
+        
+        private boolean isClosed(int index) {
+            return closedGenerations[index] == generation;
+        }
+        
+        private void close(int index) {
+            closedGenerations[index] = generation;
+        }
+        
+        private void visit(int index, int gCost, int hCost, int parent) {
+            generations[index] = generation;
+            gCosts[index] = gCost;
+            hCosts[index] = hCost;
+            parents[index] = parent;
+        }
     }
 }
@@ -3,17 +3,42 @@ package game.utils;
 import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.paint.Paint;
 
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.Arrays;
 
 // https://github.com/timohausmann/quadtree-js/blob/master/quadtree.js
-public class Quadtree<T> {
+/**
+ * A quadtree whose nodes and item lists live in flat arrays, so it can be
+ * rebuilt every tick without allocating once the arrays have grown.
+ * Each item is kept in the smallest node that fully contains it.
+ */
+public class Quadtree<T extends Broadphase.BoundedObject> implements Broadphase<T> {
     private final Bounds bounds;
     private int maxObjects = 10;
     private float minWidth = 100;
     private float minHeight = 100;
     
-    private final HashSet<QObject<T>> objects = new HashSet<>();
-    private Subnodes<T> subnodes = null;
+    /* Items, along with their bounds and the next item of the same node */
+    private Object[] items = new Object[256];
+    private float[] itemMinX = new float[256];
+    private float[] itemMinY = new float[256];
+    private float[] itemMaxX = new float[256];
+    private float[] itemMaxY = new float[256];
+    private int[] itemNext = new int[256];
+    private int itemCount = 0;
+    
+    /* Nodes, the root is node 0 and children are stored 4 in a row */
+    private float[] nodeX = new float[64];
+    private float[] nodeY = new float[64];
+    private float[] nodeWidth = new float[64];
+    private float[] nodeHeight = new float[64];
+    // First of the 4 children (top left, top right, bottom left, bottom right), or -1
+    private int[] nodeChildren = new int[64];
+    // First item of the node, or -1
+    private int[] nodeFirstItem = new int[64];
+    private int[] nodeItemCount = new int[64];
+    private int nodeCount = 0;
+    private boolean isBuilt = false;
     
     public Quadtree(Bounds bounds) {
         this.bounds = bounds;
@@ -39,267 +64,324 @@ public class Quadtree<T> {
     }
     
     public void render(GraphicsContext ctx) {
-        for (QObject<T> obj : this.objects) {
-            ctx.beginPath();
-            ctx.setStroke(Paint.valueOf("red"));
+        build();
+        ctx.beginPath();
+        ctx.setStroke(Paint.valueOf("red"));
+        for (int i = 0; i < itemCount; i++) {
             ctx.strokeRect(
-                obj.getX(),
-                obj.getY(),
-                obj.getWidth(),
-                obj.getHeight()
+                itemMinX[i],
+                itemMinY[i],
+                itemMaxX[i] - itemMinX[i],
+                itemMaxY[i] - itemMinY[i]
             );
-            ctx.closePath();
         }
-        
-        ctx.beginPath();
-        ctx.setStroke(Paint.valueOf("red"));
-        ctx.strokeRect(
-            this.bounds.getX(),
-            this.bounds.getY(),
-            this.bounds.getWidth(),
-            this.bounds.getHeight()
-        );
-        ctx.closePath();
-        
-        if (this.subnodes != null) {
-            this.subnodes.topLeft.render(ctx);
-            this.subnodes.topRight.render(ctx);
-            this.subnodes.bottomLeft.render(ctx);
-            this.subnodes.bottomRight.render(ctx);
+        for (int node = 0; node < nodeCount; node++) {
+            ctx.strokeRect(nodeX[node], nodeY[node], nodeWidth[node], nodeHeight[node]);
         }
+        ctx.closePath();
     }
     
     /**
-     * Splits the node into 4 sub-nodes.
+     * Clear the quadtree.
      */
-    private void split() {
-        float x = this.bounds.getX();
-        float y = this.bounds.getY();
-        float subWidth = this.bounds.getWidth() / 2;
-        float subHeight = this.bounds.getHeight() / 2;
-        
-        if (subWidth < this.minWidth || subHeight < this.minHeight) return;
-        
-        this.subnodes = new Subnodes<T>(
-            new Quadtree<T>(
-                new Bounds(
-                    x,
-                    y,
-                    subWidth,
-                    subHeight
-                ),
-                this.maxObjects,
-                this.minWidth,
-                this.minHeight
-            ),
-            new Quadtree<T>(
-                new Bounds(
-                    x + subWidth,
-                    y,
-                    subWidth,
-                    subHeight
-                ),
-                this.maxObjects,
-                this.minWidth,
-                this.minHeight
-            ),
-            new Quadtree<T>(
-                new Bounds(
-                    x,
-                    y + subHeight,
-                    subWidth,
-                    subHeight
-                ),
-                this.maxObjects,
-                this.minWidth,
-                this.minHeight
-            ),
-            new Quadtree<T>(
-                new Bounds(
-                    x + subWidth,
-                    y + subHeight,
-                    subWidth,
-                    subHeight
-                ),
-                this.maxObjects,
-                this.minWidth,
-                this.minHeight
-            )
-        );
-    }
-    
-    private Quadtree<T> getSubnode(SubnodeLocation subnodeLocation) {
-        return switch (subnodeLocation) {
-            case SubnodeLocation.TOP_LEFT -> this.subnodes.topLeft;
-            case SubnodeLocation.TOP_RIGHT -> this.subnodes.topRight;
-            case SubnodeLocation.BOTTOM_LEFT -> this.subnodes.bottomLeft;
-            case SubnodeLocation.BOTTOM_RIGHT -> this.subnodes.bottomRight;
-            default -> throw new Error("Invalid sub-node location.");
-        };
+    @Override
+    public void clear() {
+        Arrays.fill(items, 0, itemCount, null);
+        itemCount = 0;
+        isBuilt = false;
     }
     
-    /**
-     * Determine which node the object belongs to.
-     */
-    public HashSet<SubnodeLocation> getNodeLocation(Bounds bounds) {
-        HashSet<SubnodeLocation> locations = new HashSet<>();
-        float verticalMidpoint = this.bounds.getX() + (this.bounds.getWidth() / 2);
-        float horizontalMidpoint = this.bounds.getY() + (this.bounds.getHeight() / 2);
-        
-        boolean startIsNorth = bounds.getY() < horizontalMidpoint;
-        boolean startIsWest = bounds.getX() < verticalMidpoint;
-        boolean endIsEast = bounds.getX() + bounds.getWidth() > verticalMidpoint;
-        boolean endIsSouth = bounds.getY() + bounds.getHeight() > horizontalMidpoint;
-        
-        // Top left
-        if (startIsWest && startIsNorth) {
-            locations.add(SubnodeLocation.TOP_LEFT);
-        }
-        
-        // Top right
-        if (startIsNorth && endIsEast) {
-            locations.add(SubnodeLocation.TOP_RIGHT);
+    @Override
+    public void insert(T item) {
+        if (itemCount == items.length) {
+            int capacity = itemCount * 2;
+            items = Arrays.copyOf(items, capacity);
+            itemMinX = Arrays.copyOf(itemMinX, capacity);
+            itemMinY = Arrays.copyOf(itemMinY, capacity);
+            itemMaxX = Arrays.copyOf(itemMaxX, capacity);
+            itemMaxY = Arrays.copyOf(itemMaxY, capacity);
+            itemNext = Arrays.copyOf(itemNext, capacity);
         }
         
-        // Bottom left
-        if (startIsWest && endIsSouth) {
-            locations.add(SubnodeLocation.BOTTOM_LEFT);
+        float halfWidth = item.getWidth() / 2;
+        float halfHeight = item.getHeight() / 2;
+        items[itemCount] = item;
+        itemMinX[itemCount] = item.getPosition().getX() - halfWidth;
+        itemMinY[itemCount] = item.getPosition().getY() - halfHeight;
+        itemMaxX[itemCount] = item.getPosition().getX() + halfWidth;
+        itemMaxY[itemCount] = item.getPosition().getY() + halfHeight;
+        itemCount++;
+        isBuilt = false;
+    }
+    
+    @Override
+    public void build() {
+        if (isBuilt) return;
+        nodeCount = 0;
+        addNode(bounds.getX(), bounds.getY(), bounds.getWidth(), bounds.getHeight());
+        for (int i = 0; i < itemCount; i++) {
+            insertItem(0, i);
         }
-        
-        // Bottom right
-        if (endIsEast && endIsSouth) {
-            locations.add(SubnodeLocation.BOTTOM_RIGHT);
+        isBuilt = true;
+    }
+    
+    private int addNode(float x, float y, float width, float height) {
+        if (nodeCount == nodeX.length) {
+            int capacity = nodeCount * 2;
+            nodeX = Arrays.copyOf(nodeX, capacity);
+            nodeY = Arrays.copyOf(nodeY, capacity);
+            nodeWidth = Arrays.copyOf(nodeWidth, capacity);
+            nodeHeight = Arrays.copyOf(nodeHeight, capacity);
+            nodeChildren = Arrays.copyOf(nodeChildren, capacity);
+            nodeFirstItem = Arrays.copyOf(nodeFirstItem, capacity);
+            nodeItemCount = Arrays.copyOf(nodeItemCount, capacity);
         }
         
-        return locations;
+        int node = nodeCount++;
+        nodeX[node] = x;
+        nodeY[node] = y;
+        nodeWidth[node] = width;
+        nodeHeight[node] = height;
+        nodeChildren[node] = -1;
+        nodeFirstItem[node] = -1;
+        nodeItemCount[node] = 0;
+        return node;
     }
     
     /**
-     * Insert the object into the node. If the node
-     * exceeds the capacity, it will split and add all
-     * objects to their corresponding sub-nodes.
+     * Insert the item into the node, or the child that fully contains it.
+     * If the node exceeds the capacity, it will split and move its items
+     * to the children that fully contain them.
      */
-    public void insert(T quadtreeObject, Bounds bounds) {
-        // If we have sub-nodes, call insert on matching sub-nodes
-        if (this.subnodes != null) {
-            HashSet<SubnodeLocation> subnodeLocations = this.getNodeLocation(bounds);
-            for (SubnodeLocation subnodeLocation : subnodeLocations) {
-                getSubnode(subnodeLocation).insert(quadtreeObject, bounds);
-            }
-            return;
+    private void insertItem(int node, int item) {
+        // Go down to the smallest node that contains the item
+        int child = getChildContaining(node, item);
+        while (child >= 0) {
+            node = child;
+            child = getChildContaining(node, item);
         }
         
-        // otherwise, store object here
-        this.objects.add(
-            new QObject<>(quadtreeObject, bounds)
-        );
+        itemNext[item] = nodeFirstItem[node];
+        nodeFirstItem[node] = item;
+        nodeItemCount[node]++;
+        
+        // Max objects reached, split if we don't already have children
+        if (nodeChildren[node] >= 0 || nodeItemCount[node] <= maxObjects) return;
+        float subWidth = nodeWidth[node] / 2;
+        float subHeight = nodeHeight[node] / 2;
+        if (subWidth < minWidth || subHeight < minHeight) return;
         
-        // Max objects reached
-        if (this.objects.size() > this.maxObjects) {
-            // Split if we don't already have sub-nodes
-            this.split();
-            if (this.subnodes != null) {
-                // Add all objects to their corresponding sub-node
-                for (QObject<T> _quadtreeObject : this.objects) {
-                    HashSet<SubnodeLocation> subnodeLocations = this.getNodeLocation(
-                        _quadtreeObject
-                    );
-                    for (SubnodeLocation subnodeLocation : subnodeLocations) {
-                        getSubnode(subnodeLocation).insert(
-                            _quadtreeObject.object,
-                            _quadtreeObject
-                        );
-                    }
-                }
-                
-                // Clean up this node
-                this.objects.clear();
+        float x = nodeX[node];
+        float y = nodeY[node];
+        nodeChildren[node] = addNode(x, y, subWidth, subHeight);
+        addNode(x + subWidth, y, subWidth, subHeight);
+        addNode(x, y + subHeight, subWidth, subHeight);
+        addNode(x + subWidth, y + subHeight, subWidth, subHeight);
+        
+        // Move the items that fit in a child
+        int current = nodeFirstItem[node];
+        nodeFirstItem[node] = -1;
+        nodeItemCount[node] = 0;
+        while (current >= 0) {
+            int next = itemNext[current];
+            if (getChildContaining(node, current) >= 0) {
+                insertItem(node, current);
+            } else {
+                itemNext[current] = nodeFirstItem[node];
+                nodeFirstItem[node] = current;
+                nodeItemCount[node]++;
             }
+            current = next;
         }
     }
     
     /**
-     * Return all objects that could collide with the given object.
+     * Determine which child fully contains the item.
+     *
+     * @returns {number} The child, or -1 if there is none.
      */
-    public HashSet<QObject<T>> retrieve(Bounds bounds) {
-        HashSet<SubnodeLocation> subnodeLocations = this.getNodeLocation(bounds);
-        HashSet<QObject<T>> returnObjects = new HashSet<>(this.objects);
+    private int getChildContaining(int node, int item) {
+        int children = nodeChildren[node];
+        if (children < 0) return -1;
+        float verticalMidpoint = nodeX[node] + nodeWidth[node] / 2;
+        float horizontalMidpoint = nodeY[node] + nodeHeight[node] / 2;
         
-        // If we have sub-nodes, retrieve their objects
-        if (this.subnodes != null) {
-            for (SubnodeLocation subnodeLocation : subnodeLocations) {
-                returnObjects.addAll(this.getSubnode(subnodeLocation).retrieve(bounds));
-            }
+        int column;
+        if (itemMaxX[item] < verticalMidpoint && itemMinX[item] >= nodeX[node]) {
+            column = 0;
+        } else if (itemMinX[item] >= verticalMidpoint && itemMaxX[item] <= nodeX[node] + nodeWidth[node]) {
+            column = 1;
+        } else {
+            return -1;
         }
         
-        return returnObjects;
+        int row;
+        if (itemMaxY[item] < horizontalMidpoint && itemMinY[item] >= nodeY[node]) {
+            row = 0;
+        } else if (itemMinY[item] >= horizontalMidpoint && itemMaxY[item] <= nodeY[node] + nodeHeight[node]) {
+            row = 1;
+        } else {
+            return -1;
+        }
+        
+        return children + row * 2 + column;
+    }
+    
+    @Override
+    public void retrieve(BoundedObject bounds, ArrayList<T> result) {
+        result.clear();
+        query(bounds, result, null);
+    }
+    
+    @Override
+    public void query(BoundedObject bounds, ItemVisitor<T> visitor) {
+        query(bounds, null, visitor);
     }
     
-    public HashSet<QObject<T>> retrieve(
-        float x,
-        float y,
-        float width,
-        float height
+    private void query(BoundedObject bounds, ArrayList<T> result, ItemVisitor<T> visitor) {
+        build();
+        float halfWidth = bounds.getWidth() / 2;
+        float halfHeight = bounds.getHeight() / 2;
+        queryNode(
+            0,
+            bounds.getPosition().getX() - halfWidth,
+            bounds.getPosition().getY() - halfHeight,
+            bounds.getPosition().getX() + halfWidth,
+            bounds.getPosition().getY() + halfHeight,
+            -1,
+            result,
+            visitor,
+            null
+        );
+    }
+    
+    @Override
+    public float queryRay(
+        float startX,
+        float startY,
+        float endX,
+        float endY,
+        float radius,
+        float maxFraction,
+        RayVisitor<T> visitor
     ) {
-        return this.retrieve(new Bounds(x, y, width, height));
+        build();
+        return queryRayNode(0, startX, startY, endX, endY, radius, maxFraction, visitor);
     }
     
     /**
-     * Clear the quadtree.
+     * The items are the ranges of `forEachPair`.
      */
-    public void clear() {
-        this.objects.clear();
-        if (this.subnodes != null) {
-            this.subnodes.topRight.clear();
-            this.subnodes.topLeft.clear();
-            this.subnodes.bottomLeft.clear();
-            this.subnodes.bottomRight.clear();
-        }
-        this.subnodes = null;
+    @Override
+    public int getPairRangeCount() {
+        build();
+        return itemCount;
     }
     
-    public enum SubnodeLocation {
-        TOP_LEFT,
-        TOP_RIGHT,
-        BOTTOM_LEFT,
-        BOTTOM_RIGHT
+    /**
+     * Visit every pair of overlapping items once, from the item that was
+     * inserted first.
+     */
+    @Override
+    public void forEachPair(int fromItem, int toItem, PairVisitor<T> visitor) {
+        build();
+        for (int item = fromItem; item < toItem; item++) {
+            queryNode(
+                0,
+                itemMinX[item],
+                itemMinY[item],
+                itemMaxX[item],
+                itemMaxY[item],
+                item,
+                null,
+                null,
+                visitor
+            );
+        }
     }
     
-    public static class Subnodes<T> {
-        public final Quadtree<T> topLeft;
-        public final Quadtree<T> topRight;
-        public final Quadtree<T> bottomLeft;
-        public final Quadtree<T> bottomRight;
+    /**
+     * Visit the items of the node and its children that overlap the bounds.
+     * When `pairItem` is given, only the items inserted after it are
+     * visited, as pairs with it.
+     */
+    @SuppressWarnings("unchecked")
+    private void queryNode(
+        int node,
+        float minX,
+        float minY,
+        float maxX,
+        float maxY,
+        int pairItem,
+        ArrayList<T> result,
+        ItemVisitor<T> itemVisitor,
+        PairVisitor<T> pairVisitor
+    ) {
+        for (int item = nodeFirstItem[node]; item >= 0; item = itemNext[item]) {
+            if (item <= pairItem) continue;
+            if (itemMaxX[item] < minX || maxX < itemMinX[item]) continue;
+            if (itemMaxY[item] < minY || maxY < itemMinY[item]) continue;
+            if (pairVisitor != null) {
+                pairVisitor.visit((T) items[pairItem], (T) items[item]);
+            } else if (result != null) {
+                result.add((T) items[item]);
+            } else {
+                itemVisitor.visit((T) items[item]);
+            }
+        }
         
-        public Subnodes(
-            Quadtree<T> topLeft,
-            Quadtree<T> topRight,
-            Quadtree<T> bottomLeft,
-            Quadtree<T> bottomRight
-        ) {
-            this.topLeft = topLeft;
-            this.topRight = topRight;
-            this.bottomLeft = bottomLeft;
-            this.bottomRight = bottomRight;
+        int children = nodeChildren[node];
+        if (children < 0) return;
+        for (int child = children; child < children + 4; child++) {
+            // Items of a child are inside of it, unlike the root
+            if (nodeX[child] + nodeWidth[child] < minX || maxX < nodeX[child]) continue;
+            if (nodeY[child] + nodeHeight[child] < minY || maxY < nodeY[child]) continue;
+            queryNode(child, minX, minY, maxX, maxY, pairItem, result, itemVisitor, pairVisitor);
         }
     }
     
-    public static class QObject<T> extends Bounds {
-        public final T object;
-        
-        public QObject(T object, float x, float y, float width, float height) {
-            super(x, y, width, height);
-            this.object = object;
+    @SuppressWarnings("unchecked")
+    private float queryRayNode(
+        int node,
+        float startX,
+        float startY,
+        float endX,
+        float endY,
+        float radius,
+        float maxFraction,
+        RayVisitor<T> visitor
+    ) {
+        for (int item = nodeFirstItem[node]; item >= 0; item = itemNext[item]) {
+            float fraction = Broadphase.getRayEntryFraction(
+                startX,
+                startY,
+                endX,
+                endY,
+                itemMinX[item] - radius,
+                itemMinY[item] - radius,
+                itemMaxX[item] + radius,
+                itemMaxY[item] + radius
+            );
+            if (fraction < 0 || fraction > maxFraction) continue;
+            maxFraction = visitor.visit((T) items[item], maxFraction);
         }
         
-        public QObject(T object, Bounds bounds) {
-            super(
-                bounds.getX(),
-                bounds.getY(),
-                bounds.getWidth(),
-                bounds.getHeight()
+        int children = nodeChildren[node];
+        if (children < 0) return maxFraction;
+        for (int child = children; child < children + 4; child++) {
+            float fraction = Broadphase.getRayEntryFraction(
+                startX,
+                startY,
+                endX,
+                endY,
+                nodeX[child] - radius,
+                nodeY[child] - radius,
+                nodeX[child] + nodeWidth[child] + radius,
+                nodeY[child] + nodeHeight[child] + radius
             );
-            this.object = object;
+            if (fraction < 0 || fraction > maxFraction) continue;
+            maxFraction = queryRayNode(child, startX, startY, endX, endY, radius, maxFraction, visitor);
         }
+        return maxFraction;
     }
 }
@@ -0,0 +1,206 @@
+package game.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Keeps the items sorted along the X axis, so overlapping items are next to
+ * each other. Items are expected to be inserted in about the same order
+ * every tick, then the order of the last tick is nearly sorted already and
+ * an insertion sort fixes it in close to linear time.
+ */
+public class SweepAndPrune<T extends Broadphase.BoundedObject> implements Broadphase<T> {
+    /* Items, along with their bounds */
+    private Object[] items = new Object[256];
+    private float[] itemMinX = new float[256];
+    private float[] itemMinY = new float[256];
+    private float[] itemMaxX = new float[256];
+    private float[] itemMaxY = new float[256];
+    private int itemCount = 0;
+    
+    // Item indices sorted by their min X, kept from the last build
+    private int[] order = new int[256];
+    // Min X of the sorted items, to binary search it
+    private float[] sortedMinX = new float[256];
+    private int orderCount = 0;
+    // Largest width of the items, how far back a query has to look
+    private float maxWidth = 0;
+    private boolean isBuilt = true;
+    
+    @Override
+    public void clear() {
+        Arrays.fill(items, 0, itemCount, null);
+        itemCount = 0;
+        isBuilt = false;
+    }
+    
+    @Override
+    public void insert(T item) {
+        if (itemCount == items.length) {
+            int capacity = itemCount * 2;
+            items = Arrays.copyOf(items, capacity);
+            itemMinX = Arrays.copyOf(itemMinX, capacity);
+            itemMinY = Arrays.copyOf(itemMinY, capacity);
+            itemMaxX = Arrays.copyOf(itemMaxX, capacity);
+            itemMaxY = Arrays.copyOf(itemMaxY, capacity);
+            order = Arrays.copyOf(order, capacity);
+            sortedMinX = Arrays.copyOf(sortedMinX, capacity);
+        }
+        
+        float halfWidth = item.getWidth() / 2;
+        float halfHeight = item.getHeight() / 2;
+        items[itemCount] = item;
+        itemMinX[itemCount] = item.getPosition().getX() - halfWidth;
+        itemMinY[itemCount] = item.getPosition().getY() - halfHeight;
+        itemMaxX[itemCount] = item.getPosition().getX() + halfWidth;
+        itemMaxY[itemCount] = item.getPosition().getY() + halfHeight;
+        itemCount++;
+        isBuilt = false;
+    }
+    
+    @Override
+    public void build() {
+        if (isBuilt) return;
+        
+        // Keep the order of the last build, dropping the indices that are gone
+        int count = 0;
+        for (int i = 0; i < orderCount; i++) {
+            if (order[i] < itemCount) order[count++] = order[i];
+        }
+        for (int item = orderCount; item < itemCount; item++) {
+            order[count++] = item;
+        }
+        orderCount = count;
+        
+        // Insertion sort, items that barely moved are swapped only a few times
+        maxWidth = 0;
+        for (int i = 0; i < orderCount; i++) {
+            int item = order[i];
+            float minX = itemMinX[item];
+            maxWidth = Math.max(maxWidth, itemMaxX[item] - minX);
+            int j = i - 1;
+            while (j >= 0 && sortedMinX[j] > minX) {
+                order[j + 1] = order[j];
+                sortedMinX[j + 1] = sortedMinX[j];
+                j--;
+            }
+            order[j + 1] = item;
+            sortedMinX[j + 1] = minX;
+        }
+        
+        isBuilt = true;
+    }
+    
+    @Override
+    public void retrieve(BoundedObject bounds, ArrayList<T> result) {
+        result.clear();
+        query(bounds, result, null);
+    }
+    
+    @Override
+    public void query(BoundedObject bounds, ItemVisitor<T> visitor) {
+        query(bounds, null, visitor);
+    }
+    
+    @SuppressWarnings("unchecked")
+    private void query(BoundedObject bounds, ArrayList<T> result, ItemVisitor<T> visitor) {
+        build();
+        float halfWidth = bounds.getWidth() / 2;
+        float halfHeight = bounds.getHeight() / 2;
+        float minX = bounds.getPosition().getX() - halfWidth;
+        float minY = bounds.getPosition().getY() - halfHeight;
+        float maxX = bounds.getPosition().getX() + halfWidth;
+        float maxY = bounds.getPosition().getY() + halfHeight;
+        
+        // No item that starts before this can reach the bounds
+        for (int i = getFirstStartingAfter(minX - maxWidth); i < orderCount; i++) {
+            if (sortedMinX[i] > maxX) break;
+            int item = order[i];
+            if (itemMaxX[item] < minX) continue;
+            if (itemMaxY[item] < minY || maxY < itemMinY[item]) continue;
+            if (result != null) {
+                result.add((T) items[item]);
+            } else {
+                visitor.visit((T) items[item]);
+            }
+        }
+    }
+    
+    @Override
+    @SuppressWarnings("unchecked")
+    public float queryRay(
+        float startX,
+        float startY,
+        float endX,
+        float endY,
+        float radius,
+        float maxFraction,
+        RayVisitor<T> visitor
+    ) {
+        build();
+        float minX = Math.min(startX, endX);
+        float maxX = Math.max(startX, endX);
+        for (int i = getFirstStartingAfter(minX - radius - maxWidth); i < orderCount; i++) {
+            if (sortedMinX[i] > maxX + radius) break;
+            int item = order[i];
+            float fraction = Broadphase.getRayEntryFraction(
+                startX,
+                startY,
+                endX,
+                endY,
+                itemMinX[item] - radius,
+                itemMinY[item] - radius,
+                itemMaxX[item] + radius,
+                itemMaxY[item] + radius
+            );
+            if (fraction < 0 || fraction > maxFraction) continue;
+            maxFraction = visitor.visit((T) items[item], maxFraction);
+        }
+        return maxFraction;
+    }
+    
+    /**
+     * Find the first sorted item whose min X is at least `x`.
+     */
+    private int getFirstStartingAfter(float x) {
+        int low = 0;
+        int high = orderCount;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (sortedMinX[middle] < x) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+    
+    /**
+     * The sorted items are the ranges of `forEachPair`.
+     */
+    @Override
+    public int getPairRangeCount() {
+        build();
+        return orderCount;
+    }
+    
+    /**
+     * Visit every pair of overlapping items once, from the item with the
+     * lower min X.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public void forEachPair(int fromItem, int toItem, PairVisitor<T> visitor) {
+        build();
+        for (int i = fromItem; i < toItem; i++) {
+            int itemA = order[i];
+            for (int j = i + 1; j < orderCount; j++) {
+                if (sortedMinX[j] > itemMaxX[itemA]) break;
+                int itemB = order[j];
+                if (itemMaxY[itemA] < itemMinY[itemB] || itemMaxY[itemB] < itemMinY[itemA]) continue;
+                visitor.visit((T) items[itemA], (T) items[itemB]);
+            }
+        }
+    }
+}
@@ -3,7 +3,7 @@ package game.weapons;
 import game.Config;
 import game.Game;
 import game.World;
-import game.projectiles.Bullet;
+import game.projectiles.PelletCluster;
 import game.utils.Vector;
 
 public class Shotgun extends Gun {
@@ -64,17 +64,11 @@ public class Shotgun extends Gun {
     @Override
     public void handleShoot(World world, Vector initialPosition, float angle) {
         int bulletCount = (int) (spreadInRadians * 16);
-        for (int i = 0; i < bulletCount; i++) {
-            float angleBias = (float) (
-                spreadInRadians * Math.random() - spreadInRadians / 2
-            );
-            float computedAngle = angle + angleBias;
-            Bullet bullet = world.spawnBullet(initialPosition, computedAngle);
-            bullet.setDamage(damage);
-            bullet.setPenetration(penetration);
-            bullet.setSpeed(bulletSpeed);
-            bullet.setMaxDistance(maxDistance);
-        }
+        PelletCluster pellets = world.spawnPelletCluster(initialPosition, angle, bulletCount, spreadInRadians);
+        pellets.setDamage(damage);
+        pellets.setPenetration(penetration);
+        pellets.setSpeed(bulletSpeed);
+        pellets.setMaxDistance(maxDistance);
         
         Game.world.addPlayerDistanceAwareAudio(
             "/sounds/shotgun-shot.mp3",
@@ -19,4 +19,22 @@ public class Async {
             return thread;
         }
     );
+    // Path searches, they don't share any state so they can run side by side
+    public static final ExecutorService pathRequests = Executors.newFixedThreadPool(
+        Math.max(1, Runtime.getRuntime().availableProcessors() - 1),
+        (runnable) -> {
+            Thread thread = new Thread(runnable);
+            thread.setDaemon(true);
+            return thread;
+        }
+    );
+    // Used for work that is split up and waited on within the same tick
+    public static final ExecutorService workers = Executors.newFixedThreadPool(
+        Math.max(1, Runtime.getRuntime().availableProcessors() - 1),
+        (runnable) -> {
+            Thread thread = new Thread(runnable);
+            thread.setDaemon(true);
+            return thread;
+        }
+    );
 }
@@ -0,0 +1,125 @@
+package utils;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * A binary min heap of ids in [0, capacity). The slot of every id is kept
+ * in an array, so `contains` is a lookup and an id whose key went down
+ * can be moved up to its new place with `decreaseKey`.
+ */
+public class IndexedHeap {
+    /**
+     * Compares the keys of 2 ids, like a `Comparator`.
+     */
+    public interface KeyComparator {
+        int compare(int a, int b);
+    }
+    
+    private final int[] heap;
+    // Slot of each id in `heap`, or -1 if it isn't in the heap
+    private final int[] positions;
+    private final KeyComparator comparator;
+    private int size = 0;
+    
+    public IndexedHeap(int capacity, KeyComparator comparator) {
+        this.heap = new int[capacity];
+        this.positions = new int[capacity];
+        this.comparator = comparator;
+        Arrays.fill(positions, -1);
+    }
+    
+    public void add(int id) {
+        if (positions[id] != -1) throw new IllegalArgumentException("Id " + id + " is already in the heap");
+        heap[size] = id;
+        positions[id] = size;
+        bubbleUp(size++);
+    }
+    
+    public boolean contains(int id) {
+        return positions[id] != -1;
+    }
+    
+    /**
+     * Move `id` up to its place after its key went down.
+     */
+    public void decreaseKey(int id) {
+        int index = positions[id];
+        if (index == -1) throw new NoSuchElementException("Id " + id + " is not in the heap");
+        bubbleUp(index);
+    }
+    
+    public int peek() {
+        if (size == 0) throw new NoSuchElementException("Heap is empty");
+        return heap[0];
+    }
+    
+    public int remove() {
+        if (size == 0) throw new NoSuchElementException("Heap is empty");
+        
+        int removedId = heap[0];
+        positions[removedId] = -1;
+        size--;
+        if (size > 0) {
+            heap[0] = heap[size];
+            positions[heap[0]] = 0;
+            bubbleDown(0);
+        }
+        
+        return removedId;
+    }
+    
+    /**
+     * Remove every id, in time proportional to the size of the heap.
+     */
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            positions[heap[i]] = -1;
+        }
+        size = 0;
+    }
+    
+    private void bubbleUp(int index) {
+        int id = heap[index];
+        while (index > 0) {
+            int parentIndex = (index - 1) / 2;
+            int parentId = heap[parentIndex];
+            if (comparator.compare(id, parentId) >= 0) break;
+            
+            heap[index] = parentId;
+            positions[parentId] = index;
+            index = parentIndex;
+        }
+        heap[index] = id;
+        positions[id] = index;
+    }
+    
+    private void bubbleDown(int index) {
+        int id = heap[index];
+        while (true) {
+            int childIndex = 2 * index + 1;
+            if (childIndex >= size) break;
+            
+            int rightChildIndex = childIndex + 1;
+            if (rightChildIndex < size && comparator.compare(heap[rightChildIndex], heap[childIndex]) < 0) {
+                childIndex = rightChildIndex;
+            }
+            int childId = heap[childIndex];
+            if (comparator.compare(childId, id) >= 0) break;
+            
+            heap[index] = childId;
+            positions[childId] = index;
+            index = childIndex;
+        }
+        heap[index] = id;
+        positions[id] = index;
+    }
+    
+    public boolean isEmpty() {
+        return size == 0;
+    }
+    
+    public int size() {
+        return size;
+    }
+}